@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.context.support.StandardServletEnvironment;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Поднимает контекст приложения поверх отдельной H2 в памяти. Профилировщик SQL и таймеры методов выключены,
+ * чтобы не входить в замеры; их цену меряет {@link MethodMetricsBenchmark}, передавая свойства явно.
+ * Свойства бенчмарка перекрывают application.properties, а аргументы командной строки перекрывают их.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return builder(WebApplicationType.NONE, properties).run();
+    }
+
+    /**
+     * Контекст со встроенным Tomcat на случайном порту, порт доступен как {@code local.server.port}.
+     */
+    public static ConfigurableApplicationContext startServer(String[] properties, String... args) {
+        String[] withPort = new String[properties.length + 1];
+        withPort[0] = "server.port=0";
+        System.arraycopy(properties, 0, withPort, 1, properties.length);
+        return builder(WebApplicationType.SERVLET, withPort).run(args);
+    }
+
+    private static SpringApplicationBuilder builder(WebApplicationType type, String... properties) {
+        String url = "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LAZY_QUERY_EXECUTION=TRUE";
+        Map<String, Object> values = new LinkedHashMap<>();
+        put(values, "spring.datasource.url=" + url,
+                "filmorate.popularity.check-interval=PT24H",
+                "filmorate.sql-profiler.enabled=false",
+                "filmorate.metrics.methods.enabled=false",
+                "logging.level.root=WARN");
+        put(values, properties);
+
+        // свойства билдера попали бы в default properties и проиграли бы application.properties
+        ConfigurableEnvironment environment = type == WebApplicationType.SERVLET
+                ? new StandardServletEnvironment() : new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", values));
+
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(type)
+                .environment(environment)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false);
+    }
+
+    private static void put(Map<String, Object> values, String... properties) {
+        for (String property : properties) {
+            int separator = property.indexOf('=');
+            values.put(property.substring(0, separator), property.substring(separator + 1));
+        }
+    }
+}
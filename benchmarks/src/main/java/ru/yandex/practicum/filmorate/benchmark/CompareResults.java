@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сравнивает два JSON-отчёта JMH и завершается с кодом 1, если какой-то бенчмарк
+ * стал хуже базового больше, чем на заданный порог (по умолчанию 10%). Вывод в ASCII,
+ * чтобы его можно было разбирать в логах CI независимо от кодировки консоли.
+ * <p>
+ * {@code java -cp benchmarks.jar ru.yandex.practicum.filmorate.benchmark.CompareResults base.json new.json [порог]}
+ */
+public final class CompareResults {
+
+    private static final double DEFAULT_THRESHOLD = 0.10;
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: CompareResults <базовый.json> <новый.json> [порог, например 0.1]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> current = load(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : new TreeMap<>(current).entrySet()) {
+            JsonNode base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-90s NEW%n", entry.getKey());
+                continue;
+            }
+            double before = score(base);
+            double after = score(entry.getValue());
+            double change = (after - before) / before;
+            // для throughput рост - это улучшение, для времени - ухудшение
+            double slowdown = "thrpt".equals(entry.getValue().path("mode").asText()) ? -change : change;
+            boolean regressed = slowdown > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %12.3f -> %12.3f %s %+7.1f%%%s%n", entry.getKey(), before, after,
+                    entry.getValue().path("primaryMetric").path("scoreUnit").asText(), change * 100,
+                    regressed ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("REGRESSIONS: %d%n", regressions);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            results.put(key(result), result);
+        }
+        return results;
+    }
+
+    private static String key(JsonNode result) {
+        StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+        Map<String, String> params = new TreeMap<>();
+        result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+        params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+        return key.toString();
+    }
+
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Детерминированный набор данных: фильмы с жанрами, пользователи, лайки и дружба.
+ * Популярность фильмов распределена неравномерно, чтобы топ не состоял из одинаковых значений.
+ */
+public final class Dataset {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int GENRES = 6;
+    private static final int RATINGS = 5;
+
+    private final int[] filmIds;
+    private final int[] userIds;
+
+    private Dataset(int[] filmIds, int[] userIds) {
+        this.filmIds = filmIds;
+        this.userIds = userIds;
+    }
+
+    public static Dataset seed(FilmStorage filmStorage, UserStorage userStorage,
+                               int films, int users, int likesPerUser, int friendsPerUser) {
+        Random random = new Random(42);
+
+        int[] filmIds = new int[films];
+        for (int from = 0; from < films; from += BATCH_SIZE) {
+            List<Film> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(films, from + BATCH_SIZE); i++) {
+                batch.add(film(i, random));
+            }
+            List<Film> created = filmStorage.createFilms(batch);
+            for (int i = 0; i < created.size(); i++) {
+                filmIds[from + i] = created.get(i).getId();
+            }
+        }
+
+        int[] userIds = new int[users];
+        for (int from = 0; from < users; from += BATCH_SIZE) {
+            List<User> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(users, from + BATCH_SIZE); i++) {
+                batch.add(user(i));
+            }
+            List<User> created = userStorage.createUsers(batch);
+            for (int i = 0; i < created.size(); i++) {
+                userIds[from + i] = created.get(i).getId();
+            }
+        }
+
+        List<Friendship> friendships = new ArrayList<>();
+        for (int userId : userIds) {
+            for (int i = 0; i < Math.min(friendsPerUser, users - 1); i++) {
+                int friendId = userIds[random.nextInt(users)];
+                if (friendId != userId) {
+                    friendships.add(new Friendship(userId, friendId));
+                }
+            }
+            if (friendships.size() >= BATCH_SIZE) {
+                userStorage.addFriends(friendships);
+                friendships.clear();
+            }
+        }
+        userStorage.addFriends(friendships);
+
+        List<LikeEvent> likes = new ArrayList<>();
+        for (int userId : userIds) {
+            for (int i = 0; i < Math.min(likesPerUser, films); i++) {
+                likes.add(new LikeEvent(filmIds[skewed(random, films)], userId, true));
+            }
+            if (likes.size() >= BATCH_SIZE) {
+                filmStorage.applyLikes(likes);
+                likes.clear();
+            }
+        }
+        filmStorage.applyLikes(likes);
+
+        return new Dataset(filmIds, userIds);
+    }
+
+    public int randomFilmId(Random random) {
+        return filmIds[random.nextInt(filmIds.length)];
+    }
+
+    public int randomUserId(Random random) {
+        return userIds[random.nextInt(userIds.length)];
+    }
+
+    public int films() {
+        return filmIds.length;
+    }
+
+    public int users() {
+        return userIds.length;
+    }
+
+    private static Film film(int i, Random random) {
+        Set<Genre> genres = new LinkedHashSet<>();
+        int genreCount = random.nextInt(3);
+        for (int g = 0; g < genreCount; g++) {
+            genres.add(new Genre(1 + random.nextInt(GENRES), null));
+        }
+        return Film.builder()
+                .name("Фильм " + i)
+                .description("Описание фильма номер " + i)
+                .releaseDate(LocalDate.of(1950 + random.nextInt(75), 1 + random.nextInt(12), 1 + random.nextInt(28)))
+                .duration(60 + random.nextInt(120))
+                .mpa(new Mpa(1 + random.nextInt(RATINGS), null))
+                .genres(genres)
+                .build();
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .email("user" + i + "@bench.ru")
+                .login("user" + i)
+                .name("Пользователь " + i)
+                .birthday(LocalDate.of(1990, 1, 1).plusDays(i % 10000))
+                .build();
+    }
+
+    /**
+     * Квадрат равномерной величины смещает выбор к началу каталога.
+     */
+    private static int skewed(Random random, int bound) {
+        double u = random.nextDouble();
+        return (int) (u * u * bound);
+    }
+}
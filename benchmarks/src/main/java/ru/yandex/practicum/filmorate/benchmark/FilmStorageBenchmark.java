@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути {@code FilmDbStorage} в обход кэша сущностей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000", "10000"})
+    public int films;
+
+    @Param({"1000"})
+    public int users;
+
+    @Param({"20"})
+    public int likesPerUser;
+
+    @Param({"10"})
+    public int count;
+
+    private ConfigurableApplicationContext context;
+    private FilmStorage filmStorage;
+    private Dataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        filmStorage = context.getBean("filmDbStorage", FilmStorage.class);
+        UserStorage userStorage = context.getBean("userDbStorage", UserStorage.class);
+        dataset = Dataset.seed(filmStorage, userStorage, films, users, likesPerUser, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmStorage.getPopularFilms(count);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilmsByGenre() {
+        return filmStorage.getPopularFilms(count, 1 + ThreadLocalRandom.current().nextInt(6), null, null);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> getFilms() {
+        return filmStorage.getFilms();
+    }
+
+    @Benchmark
+    public List<Film> getFilmsPage() {
+        return filmStorage.getFilms(ThreadLocalRandom.current().nextInt(films), PAGE_SIZE);
+    }
+
+    /**
+     * Пары фильм-пользователь случайны, поэтому большая часть вызовов добавляет новый лайк.
+     */
+    @Benchmark
+    public void addLike() {
+        Random random = ThreadLocalRandom.current();
+        filmStorage.addLike(Film.builder().id(dataset.randomFilmId(random)).build(),
+                User.builder().id(dataset.randomUserId(random)).build());
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.metrics.MethodMetricsAspect;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.NoopDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена таймеров {@link MethodMetricsAspect} на вызов: пустой метод напрямую, через прокси без совета
+ * и через прокси с таймером, а также реальные вызовы хранилища с включёнными и выключенными таймерами
+ * и профилировщиком SQL.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MethodMetricsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Noop {
+        NoopDbStorage direct;
+        NoopDbStorage proxied;
+        NoopDbStorage timed;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            direct = new NoopDbStorage();
+
+            AspectJProxyFactory plain = new AspectJProxyFactory(new NoopDbStorage());
+            plain.setProxyTargetClass(true);
+            proxied = plain.getProxy();
+
+            AspectJProxyFactory advised = new AspectJProxyFactory(new NoopDbStorage());
+            advised.setProxyTargetClass(true);
+            advised.addAspect(new MethodMetricsAspect(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)));
+            timed = advised.getProxy();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Application {
+
+        @Param({"true", "false"})
+        public boolean metrics;
+
+        @Param({"true", "false"})
+        public boolean sqlProfiler;
+
+        @Param({"10000"})
+        public int films;
+
+        ConfigurableApplicationContext context;
+        FilmStorage filmStorage;
+        Dataset dataset;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkContext.start("filmorate.metrics.methods.enabled=" + metrics,
+                    "filmorate.sql-profiler.enabled=" + sqlProfiler);
+            filmStorage = context.getBean(FilmStorage.class);
+            dataset = Dataset.seed(filmStorage, context.getBean(UserStorage.class), films, 1000, 20, 0);
+            for (int i = 0; i < films; i++) {
+                filmStorage.getFilmById(dataset.randomFilmId(ThreadLocalRandom.current()));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int noopDirect(Noop state) {
+        return state.direct.getById(ThreadLocalRandom.current().nextInt());
+    }
+
+    @Benchmark
+    public int noopProxy(Noop state) {
+        return state.proxied.getById(ThreadLocalRandom.current().nextInt());
+    }
+
+    @Benchmark
+    public int noopTimed(Noop state) {
+        return state.timed.getById(ThreadLocalRandom.current().nextInt());
+    }
+
+    /**
+     * Попадание в кэш сущностей - самый дешёвый реальный вызов, на нём доля таймера наибольшая.
+     */
+    @Benchmark
+    public Optional<Film> cachedGetFilmById(Application state) {
+        return state.filmStorage.getFilmById(state.dataset.randomFilmId(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms(Application state) {
+        return state.filmStorage.getPopularFilms(10);
+    }
+}
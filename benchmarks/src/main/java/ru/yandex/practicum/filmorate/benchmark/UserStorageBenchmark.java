@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути {@code UserDbStorage} в обход кэша сущностей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+
+    @Param({"1000", "10000"})
+    public int users;
+
+    @Param({"50"})
+    public int friendsPerUser;
+
+    private ConfigurableApplicationContext context;
+    private UserStorage userStorage;
+    private Dataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        FilmStorage filmStorage = context.getBean("filmDbStorage", FilmStorage.class);
+        userStorage = context.getBean("userDbStorage", UserStorage.class);
+        dataset = Dataset.seed(filmStorage, userStorage, 1, users, 0, friendsPerUser);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<User> getMutualFriends() {
+        Random random = ThreadLocalRandom.current();
+        return userStorage.getMutualFriends(User.builder().id(dataset.randomUserId(random)).build(),
+                User.builder().id(dataset.randomUserId(random)).build());
+    }
+
+    @Benchmark
+    public List<Integer> getUserFriendIds() {
+        return userStorage.getUserFriends(dataset.randomUserId(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<User> getUserFriends() {
+        return userStorage.getFriends(dataset.randomUserId(ThreadLocalRandom.current()), 0, Integer.MAX_VALUE);
+    }
+}
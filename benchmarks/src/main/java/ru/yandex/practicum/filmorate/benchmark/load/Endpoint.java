@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * Вид запроса в смеси нагрузки: имя для отчёта, вес и фабрика запросов.
+ */
+final class Endpoint {
+
+    private final String name;
+    private final int weight;
+    private final BiFunction<URI, Random, HttpRequest> factory;
+
+    Endpoint(String name, int weight, BiFunction<URI, Random, HttpRequest> factory) {
+        this.name = name;
+        this.weight = weight;
+        this.factory = factory;
+    }
+
+    String name() {
+        return name;
+    }
+
+    int weight() {
+        return weight;
+    }
+
+    Endpoint withWeight(int weight) {
+        return new Endpoint(name, weight, factory);
+    }
+
+    HttpRequest request(URI base, Random random) {
+        return factory.apply(base, random);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Имитирует сетевую базу поверх H2 в памяти: каждый запрос выполняется на {@code benchmark.jdbc-latency} дольше,
+ * пока держит соединение. Задержка ставится под пул Hikari, так что пул и ограничители над ним видят её
+ * как время работы базы. {@code --benchmark.jdbc-latency=PT0.005S}
+ */
+@Component
+@ConditionalOnProperty("benchmark.jdbc-latency")
+public class JdbcLatency implements BeanPostProcessor {
+
+    private final long latencyNanos;
+
+    public JdbcLatency(@Value("${benchmark.jdbc-latency}") Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource) {
+            HikariDataSource hikari = (HikariDataSource) bean;
+            JdbcDataSource h2 = new JdbcDataSource();
+            h2.setURL(hikari.getJdbcUrl());
+            h2.setUser(hikari.getUsername());
+            h2.setPassword(hikari.getPassword());
+            hikari.setDataSource(new DelegatingDataSource(h2) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return (Connection) delayed(super.getConnection(), Connection.class);
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return (Connection) delayed(super.getConnection(username, password), Connection.class);
+                }
+            });
+        }
+        return bean;
+    }
+
+    private Object delayed(Object target, Class<?> type) {
+        return Proxy.newProxyInstance(JdbcLatency.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        LockSupport.parkNanos(latencyNanos);
+                    }
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement && method.getReturnType().isInterface()) {
+                        return delayed(result, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
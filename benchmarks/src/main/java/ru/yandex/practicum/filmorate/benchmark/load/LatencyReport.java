@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограммы задержек по каждому виду запроса, в микросекундах.
+ * <p>
+ * {@code response} считается от запланированного момента отправки и включает ожидание в очереди
+ * генератора, если сервер не успевает (поправка на coordinated omission). {@code service} считается
+ * от фактической отправки и показывает, сколько отвечал сам сервер.
+ */
+final class LatencyReport {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double MICROS_IN_MILLI = 1000.0;
+
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+
+    LatencyReport(List<Endpoint> endpoints) {
+        for (Endpoint endpoint : endpoints) {
+            stats.put(endpoint.name(), new Stats());
+        }
+    }
+
+    void record(Endpoint endpoint, long intendedNanos, long sentNanos, long doneNanos, boolean success) {
+        Stats endpointStats = stats.get(endpoint.name());
+        endpointStats.response.recordValue(Math.max(0, (doneNanos - intendedNanos) / 1000));
+        endpointStats.service.recordValue(Math.max(0, (doneNanos - sentNanos) / 1000));
+        if (!success) {
+            endpointStats.errors.increment();
+        }
+    }
+
+    void print(PrintStream out, Duration duration) {
+        out.printf("%-16s %9s %7s %9s %9s %9s %9s %9s %12s%n",
+                "endpoint", "requests", "errors", "rps", "p50 ms", "p99 ms", "p999 ms", "max ms", "svc p99 ms");
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        long errors = 0;
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats endpointStats = entry.getValue();
+            total.add(endpointStats.response);
+            errors += endpointStats.errors.sum();
+            printRow(out, entry.getKey(), endpointStats.response, endpointStats.errors.sum(),
+                    endpointStats.service.getValueAtPercentile(99.0), duration);
+        }
+        printRow(out, "total", total, errors, -1, duration);
+    }
+
+    /**
+     * Пишет {@code summary.json} и полные распределения {@code <endpoint>.hgrm} в миллисекундах.
+     */
+    void write(Path directory, Duration duration, Map<String, Object> settings) throws IOException {
+        Files.createDirectories(directory);
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats endpointStats = entry.getValue();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", endpointStats.response.getTotalCount());
+            summary.put("errors", endpointStats.errors.sum());
+            summary.put("rps", rps(endpointStats.response, duration));
+            summary.put("response", percentiles(endpointStats.response));
+            summary.put("service", percentiles(endpointStats.service));
+            endpoints.put(entry.getKey(), summary);
+
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey() + ".hgrm")))) {
+                endpointStats.response.outputPercentileDistribution(out, MICROS_IN_MILLI);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings);
+        report.put("endpoints", endpoints);
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(directory.resolve("summary.json").toFile(), report);
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, long errors,
+                                 long serviceP99, Duration duration) {
+        out.printf("%-16s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %12s%n", name,
+                histogram.getTotalCount(), errors, rps(histogram, duration),
+                millis(histogram.getValueAtPercentile(50.0)),
+                millis(histogram.getValueAtPercentile(99.0)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()),
+                serviceP99 < 0 ? "" : String.format("%.2f", millis(serviceP99)));
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", millis(histogram.getValueAtPercentile(50.0)));
+        percentiles.put("p90", millis(histogram.getValueAtPercentile(90.0)));
+        percentiles.put("p99", millis(histogram.getValueAtPercentile(99.0)));
+        percentiles.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        return percentiles;
+    }
+
+    private static double rps(Histogram histogram, Duration duration) {
+        return histogram.getTotalCount() * 1000.0 / duration.toMillis();
+    }
+
+    private static double millis(long micros) {
+        return micros / MICROS_IN_MILLI;
+    }
+
+    private static final class Stats {
+        private final Histogram response = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram service = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.benchmark.Dataset;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор HTTP-нагрузки с открытой моделью: запросы отправляются по расписанию с заданной
+ * частотой независимо от того, успел ли сервер ответить на предыдущие.
+ * <p>
+ * {@code java -cp benchmarks.jar ru.yandex.practicum.filmorate.benchmark.load.LoadTest rate=500 duration=PT1M}
+ * <p>
+ * Аргументы вида {@code ключ=значение} (см. {@link #DEFAULTS}), аргументы с {@code --} передаются
+ * в Spring, например {@code --logging.level.ru.yandex.practicum=INFO}.
+ */
+public final class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rate", "200");
+        DEFAULTS.put("duration", "PT30S");
+        DEFAULTS.put("warmup", "PT10S");
+        DEFAULTS.put("films", "10000");
+        DEFAULTS.put("users", "10000");
+        DEFAULTS.put("likesPerUser", "20");
+        DEFAULTS.put("friendsPerUser", "50");
+        DEFAULTS.put("maxInFlight", "1024");
+        DEFAULTS.put("mix", "");
+        DEFAULTS.put("output", "load-report");
+        DEFAULTS.put("seed", "1");
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                springArgs.add(arg);
+                continue;
+            }
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2 || !DEFAULTS.containsKey(pair[0])) {
+                throw new IllegalArgumentException("Неизвестный аргумент " + arg + ", доступны " + DEFAULTS.keySet());
+            }
+            options.put(pair[0], pair[1]);
+        }
+
+        int rate = Integer.parseInt(options.get("rate"));
+        Duration duration = Duration.parse(options.get("duration"));
+        Duration warmup = Duration.parse(options.get("warmup"));
+
+        try (ConfigurableApplicationContext context = BenchmarkContext.startServer(new String[0],
+                springArgs.toArray(new String[0]))) {
+            System.out.println("Заполнение базы: " + options);
+            Dataset dataset = Dataset.seed(context.getBean(FilmStorage.class), context.getBean(UserStorage.class),
+                    Integer.parseInt(options.get("films")), Integer.parseInt(options.get("users")),
+                    Integer.parseInt(options.get("likesPerUser")), Integer.parseInt(options.get("friendsPerUser")));
+
+            URI base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+            Mix mix = Mix.of(dataset, options.get("mix"));
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            Driver driver = new Driver(client, base, mix, Integer.parseInt(options.get("maxInFlight")),
+                    new Random(Long.parseLong(options.get("seed"))));
+
+            System.out.printf("Прогрев %s на %d rps%n", warmup, rate);
+            driver.run(rate, warmup, new LatencyReport(mix.endpoints()));
+
+            System.out.printf("Замер %s на %d rps%n", duration, rate);
+            LatencyReport report = new LatencyReport(mix.endpoints());
+            driver.run(rate, duration, report);
+
+            report.print(System.out, duration);
+            Map<String, Object> settings = new LinkedHashMap<>(options);
+            settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+            report.write(Path.of(options.get("output")), duration, settings);
+            System.out.println("Отчёт записан в " + Path.of(options.get("output")).toAbsolutePath());
+        }
+    }
+
+    static final class Driver {
+
+        private final HttpClient client;
+        private final URI base;
+        private final Mix mix;
+        private final int maxInFlight;
+        private final Semaphore inFlight;
+        private final Random random;
+
+        Driver(HttpClient client, URI base, Mix mix, int maxInFlight, Random random) {
+            this.client = client;
+            this.base = base;
+            this.mix = mix;
+            this.maxInFlight = maxInFlight;
+            this.inFlight = new Semaphore(maxInFlight);
+            this.random = random;
+        }
+
+        /**
+         * Момент отправки i-го запроса - {@code start + i * interval}. Если генератор отстал (сервер держит
+         * все {@code maxInFlight} соединений), запрос уходит позже, но задержка всё равно считается
+         * от запланированного момента.
+         */
+        void run(int rate, Duration duration, LatencyReport report) throws InterruptedException {
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+
+            for (long i = 0; ; i++) {
+                long intended = start + i * interval;
+                if (intended >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquire();
+
+                Endpoint endpoint = mix.next(random);
+                long sent = System.nanoTime();
+                client.sendAsync(endpoint.request(base, random), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> {
+                            report.record(endpoint, intended, sent, System.nanoTime(),
+                                    error == null && response.statusCode() < 400);
+                            inFlight.release();
+                        });
+            }
+
+            if (!inFlight.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Сервер не ответил на все запросы за минуту");
+            }
+            inFlight.release(maxInFlight);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import ru.yandex.practicum.filmorate.benchmark.Dataset;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Взвешенная смесь запросов. По умолчанию преобладают чтения: популярное, карточки фильмов и друзья.
+ */
+final class Mix {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int PAGE_SIZE = 100;
+
+    private final List<Endpoint> endpoints;
+    private final int[] cumulative;
+
+    private Mix(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+        this.cumulative = new int[endpoints.size()];
+        int total = 0;
+        for (int i = 0; i < endpoints.size(); i++) {
+            total += endpoints.get(i).weight();
+            cumulative[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Суммарный вес смеси должен быть больше нуля");
+        }
+    }
+
+    /**
+     * @param weights переопределение весов в виде {@code popular:50,like:0}, пустая строка - веса по умолчанию
+     */
+    static Mix of(Dataset dataset, String weights) {
+        Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+        put(endpoints, new Endpoint("films-page", 15, (base, random) ->
+                get(base, "/films?after=" + random.nextInt(dataset.films()) + "&limit=" + PAGE_SIZE)));
+        put(endpoints, new Endpoint("film", 20, (base, random) ->
+                get(base, "/films/" + dataset.randomFilmId(random))));
+        put(endpoints, new Endpoint("popular", 25, (base, random) ->
+                get(base, "/films/popular?count=10")));
+        put(endpoints, new Endpoint("like", 10, (base, random) ->
+                send(base, "PUT", "/films/" + dataset.randomFilmId(random) + "/like/" + dataset.randomUserId(random))));
+        put(endpoints, new Endpoint("unlike", 5, (base, random) ->
+                send(base, "DELETE", "/films/" + dataset.randomFilmId(random) + "/like/" + dataset.randomUserId(random))));
+        put(endpoints, new Endpoint("friends", 15, (base, random) ->
+                get(base, "/users/" + dataset.randomUserId(random) + "/friends")));
+        put(endpoints, new Endpoint("common-friends", 10, (base, random) ->
+                get(base, "/users/" + dataset.randomUserId(random) + "/friends/common/" + dataset.randomUserId(random))));
+
+        if (!weights.isBlank()) {
+            for (String item : weights.split(",")) {
+                String[] pair = item.split(":");
+                Endpoint endpoint = endpoints.get(pair[0].trim());
+                if (endpoint == null || pair.length != 2) {
+                    throw new IllegalArgumentException("Неизвестный элемент смеси: " + item
+                            + ", доступны " + endpoints.keySet());
+                }
+                endpoints.put(endpoint.name(), endpoint.withWeight(Integer.parseInt(pair[1].trim())));
+            }
+        }
+        return new Mix(new ArrayList<>(endpoints.values()));
+    }
+
+    Endpoint next(Random random) {
+        int point = random.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (point < cumulative[i]) {
+                return endpoints.get(i);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    private static void put(Map<String, Endpoint> endpoints, Endpoint endpoint) {
+        endpoints.put(endpoint.name(), endpoint);
+    }
+
+    private static HttpRequest get(URI base, String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private static HttpRequest send(URI base, String method, String path) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(TIMEOUT)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Пустое хранилище для замера накладных расходов на таймеры: имя и пакет подпадают
+ * под срез {@code MethodMetricsAspect}.
+ */
+public class NoopDbStorage {
+
+    public int getById(int id) {
+        return id;
+    }
+}
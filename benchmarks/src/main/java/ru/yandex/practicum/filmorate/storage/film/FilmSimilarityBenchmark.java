@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.benchmark.Dataset;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск похожих фильмов через LSH против полного перебора по Жаккару. Лежит в пакете индекса,
+ * чтобы сравнивать с package-private {@link FilmSimilarityIndex#similarExact}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmSimilarityBenchmark {
+
+    @Param({"1000", "10000"})
+    public int films;
+
+    @Param({"5000"})
+    public int users;
+
+    @Param({"20"})
+    public int likesPerUser;
+
+    @Param({"10"})
+    public int limit;
+
+    private ConfigurableApplicationContext context;
+    private FilmSimilarityIndex similarityIndex;
+    private Dataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        FilmStorage filmStorage = context.getBean("filmDbStorage", FilmStorage.class);
+        UserStorage userStorage = context.getBean("userDbStorage", UserStorage.class);
+        dataset = Dataset.seed(filmStorage, userStorage, films, users, likesPerUser, 0);
+        similarityIndex = context.getBean(FilmSimilarityIndex.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Integer> similar() {
+        return similarityIndex.similar(dataset.randomFilmId(ThreadLocalRandom.current()), limit);
+    }
+
+    @Benchmark
+    public List<Integer> similarExact() {
+        return similarityIndex.similarExact(dataset.randomFilmId(ThreadLocalRandom.current()), limit);
+    }
+}
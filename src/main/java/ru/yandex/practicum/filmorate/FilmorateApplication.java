@@ -2,8 +2,13 @@ package ru.yandex.practicum.filmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// иначе при r2dbc-h2 в classpath Spring Boot создаст встроенную R2DBC-базу и не создаст JDBC DataSource;
+// реактивное чтение само открывает ту же H2, что и JDBC
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableScheduling
 public class FilmorateApplication {
 
     public static void main(String[] args) {
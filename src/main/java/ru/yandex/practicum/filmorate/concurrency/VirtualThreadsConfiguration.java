@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * При {@code filmorate.virtual-threads.enabled=true} запросы Tomcat и асинхронные ответы MVC (NDJSON-выгрузки)
+ * выполняются в виртуальных потоках, а каждый пул Hikari закрывается {@link JdbcConcurrencyLimiter}
+ * размером с пул, если {@code filmorate.virtual-threads.jdbc-permits} не задан. Требует Java 21.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty("filmorate.virtual-threads.enabled")
+public class VirtualThreadsConfiguration {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService requestExecutor() {
+        log.info("Запросы обрабатываются в виртуальных потоках");
+        return VirtualThreads.newExecutor("http-vt-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadsProtocolHandler(
+            ExecutorService requestExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+    }
+
+    @Bean
+    public WebMvcConfigurer virtualThreadsAsyncSupport(ExecutorService requestExecutor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new ConcurrentTaskExecutor(requestExecutor));
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor jdbcConcurrencyLimiterPostProcessor(Environment environment) {
+        int permits = environment.getRequiredProperty("filmorate.virtual-threads.jdbc-permits", Integer.class);
+        Duration timeout = environment.getRequiredProperty("filmorate.virtual-threads.jdbc-acquire-timeout",
+                Duration.class);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource)) {
+                    return bean;
+                }
+                // до старта пула Hikari хранит -1 вместо размера по умолчанию
+                int poolSize = ((HikariDataSource) bean).getMaximumPoolSize();
+                return new JdbcConcurrencyLimiter((DataSource) bean,
+                        permits > 0 ? permits : poolSize > 0 ? poolSize : DEFAULT_POOL_SIZE, timeout);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder jdbcConcurrencyLimiterMetrics(Map<String, DataSource> dataSources) {
+        return registry -> dataSources.forEach((name, dataSource) -> {
+            if (dataSource instanceof JdbcConcurrencyLimiter) {
+                JdbcConcurrencyLimiter limiter = (JdbcConcurrencyLimiter) dataSource;
+                Gauge.builder("filmorate.jdbc.limiter.waiting", limiter, JdbcConcurrencyLimiter::getWaiting)
+                        .description("Потоки, ожидающие соединения с базой")
+                        .tag("pool", name)
+                        .register(registry);
+                Gauge.builder("filmorate.jdbc.limiter.active", limiter, JdbcConcurrencyLimiter::getInUse)
+                        .description("Выданные соединения с базой")
+                        .tag("pool", name)
+                        .register(registry);
+            }
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
+import ru.yandex.practicum.filmorate.metrics.SqlProfiler;
+import ru.yandex.practicum.filmorate.model.SqlProfile;
+
+@RestController
+@RequestMapping("/admin")
+@Slf4j
+public class AdminController {
+
+    private static final int MAX_PROFILE_SIZE = 100;
+
+    private final SqlProfiler sqlProfiler;
+
+    @Autowired
+    public AdminController(SqlProfiler sqlProfiler) {
+        this.sqlProfiler = sqlProfiler;
+    }
+
+    @GetMapping("/sql-profile")
+    public SqlProfile getSqlProfile(@RequestParam(defaultValue = "20") int limit) {
+        if (limit <= 0 || limit > MAX_PROFILE_SIZE) {
+            throw new ValidateException("Значение limit должно быть от 1 до " + MAX_PROFILE_SIZE);
+        }
+        return sqlProfiler.profile(limit);
+    }
+
+    @DeleteMapping("/sql-profile")
+    public void resetSqlProfile() {
+        log.info("Сброс статистики SQL-запросов");
+        sqlProfiler.reset();
+    }
+}
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -30,6 +31,13 @@ public class ErrorHandler {
         return new ExceptionResponse(e.getMessage());
     }
 
+    @ExceptionHandler(CannotGetJdbcConnectionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ExceptionResponse handleCannotGetJdbcConnectionException(final CannotGetJdbcConnectionException e) {
+        log.warn("CannotGetJdbcConnectionException, {}", e.getMessage());
+        return new ExceptionResponse(e.getMessage());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ExceptionResponse handleOtherExceptions(final RuntimeException e) {
@@ -37,7 +45,7 @@ public class ErrorHandler {
         return new ExceptionResponse(e.getMessage(), printStackTrace(e));
     }
 
-    private String printStackTrace(RuntimeException e) {
+    static String printStackTrace(Throwable e) {
         StringWriter stringWriter = new StringWriter();
         PrintWriter printWriter = new PrintWriter(stringWriter);
         e.printStackTrace(printWriter);
@@ -1,39 +1,82 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
 import ru.yandex.practicum.filmorate.exception.WrongArgumentException;
+import ru.yandex.practicum.filmorate.model.BulkImportReport;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.film.FilmService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("/films")
 @Slf4j
 public class FilmController {
+    private static final int MAX_SIMILAR = 100;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_CACHED_POPULAR = 100;
+
     FilmService filmService;
+    ObjectMapper objectMapper;
+    JsonResponseCache jsonCache;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper, JsonResponseCache jsonCache) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.jsonCache = jsonCache;
     }
 
     @GetMapping
-    public List<Film> getFilms() {
-        log.info("Обработка запроса с получением списка фильмов");
-        List<Film> films = filmService.getAll();
-        log.info("Получен список фильмов");
-        return films;
+    public ResponseEntity<List<Film>> getFilms(@RequestParam(required = false) Integer after,
+                                               @RequestParam(required = false) Integer limit,
+                                               WebRequest request) {
+        if (!Pagination.isRequested(after, limit)) {
+            log.info("Обработка запроса с получением списка фильмов");
+            if (request.checkNotModified(filmService.getFilmsEtag())) {
+                return null;
+            }
+            List<Film> films = filmService.getAll();
+            log.info("Получен список фильмов");
+            return ResponseEntity.ok(films);
+        }
+
+        int afterId = Pagination.after(after);
+        int pageSize = Pagination.limit(limit);
+        log.info("Обработка запроса с получением страницы фильмов после id = {} длиной {}", afterId, pageSize);
+        if (request.checkNotModified(filmService.getFilmsEtag())) {
+            return null;
+        }
+        List<Film> films = filmService.getPage(afterId, pageSize);
+        log.info("Получена страница фильмов длиной {}", films.size());
+        return Pagination.page(films, pageSize, Film::getId);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        log.info("Обработка запроса с потоковой выгрузкой фильмов");
+        return NdjsonStream.of(objectMapper, filmService::streamAll);
     }
 
     @GetMapping("/{filmId}")
-    public Film getFilm(@PathVariable int filmId) {
+    public ResponseEntity<byte[]> getFilm(@PathVariable int filmId, ServletWebRequest request) {
         log.info("Обработка запроса с получением фильма с id = {}", filmId);
         Film film = filmService.getFilmById(filmId);
         log.info("Получен фильм с id = {}", filmId);
-        return film;
+        // кэш хранилища заменяет экземпляр фильма при каждой его записи, так что экземпляр и есть версия тела
+        return jsonCache.respond(request, "/films/" + filmId, film, () -> film);
     }
 
     @PostMapping()
@@ -45,6 +88,16 @@ public class FilmController {
         return newFilm;
     }
 
+    @PostMapping("/bulk")
+    public BulkImportReport importFilms(InputStream body) throws IOException {
+        log.info("Обработка запроса с массовым импортом фильмов");
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(body)) {
+            BulkImportReport report = filmService.importFilms(films);
+            log.info("Импорт завершен, создано фильмов: {}", report.getImported());
+            return report;
+        }
+    }
+
     @PutMapping()
     public Film updateFilm(@RequestBody Film film) {
         int filmId = film.getId();
@@ -83,13 +136,49 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(required = false, defaultValue = "10") Integer count) {
+    public ResponseEntity<byte[]> getPopularFilms(@RequestParam(required = false, defaultValue = "10") Integer count,
+                                                  @RequestParam(required = false) Integer genreId,
+                                                  @RequestParam(required = false) Integer year,
+                                                  @RequestParam(required = false) Integer mpaId,
+                                                  ServletWebRequest request) {
         log.info("Обработка запроса с получением списка популярных фильмов");
         if (count <= 0) {
             throw new WrongArgumentException("Недопустимое значение count");
         }
-        List<Film> films = filmService.getPopularFilms(count);
+        String etag = filmService.getFilmsEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        // count не ограничен, и длинные списки заняли бы в кэше тела на всю таблицу фильмов
+        String key = count > MAX_CACHED_POPULAR ? null
+                : "/films/popular?count=" + count + "&genreId=" + genreId + "&year=" + year + "&mpaId=" + mpaId;
+        ResponseEntity<byte[]> response = jsonCache.respond(request, key, etag,
+                () -> filmService.getPopularFilms(count, genreId, year, mpaId));
         log.info("Получен список поплуярных фильмов длиной {}", count);
+        return response;
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q,
+                                  @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            throw new ValidateException("Значение limit должно быть от 1 до " + MAX_SEARCH_RESULTS);
+        }
+        log.info("Обработка запроса с поиском фильмов по запросу \"{}\"", q);
+        List<Film> films = filmService.searchFilms(q, limit);
+        log.info("По запросу \"{}\" найдено {} фильмов", q, films.size());
+        return films;
+    }
+
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(@PathVariable(value = "id") int filmId,
+                                      @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0 || limit > MAX_SIMILAR) {
+            throw new ValidateException("Значение limit должно быть от 1 до " + MAX_SIMILAR);
+        }
+        log.info("Обработка запроса с получением фильмов, похожих на фильм с id = {}", filmId);
+        List<Film> films = filmService.getSimilarFilms(filmId, limit);
+        log.info("Получено {} фильмов, похожих на фильм с id = {}", films.size(), filmId);
         return films;
     }
 
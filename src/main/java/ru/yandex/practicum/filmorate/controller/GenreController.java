@@ -2,38 +2,45 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.genre.GenreService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/genres")
 @Slf4j
 public class GenreController {
 
     GenreService genreService;
+    JsonResponseCache jsonCache;
 
     @Autowired
-    public GenreController(GenreService genreService) {
+    public GenreController(GenreService genreService, JsonResponseCache jsonCache) {
         this.genreService = genreService;
+        this.jsonCache = jsonCache;
     }
 
     @GetMapping
-    public List<Genre> getGenres() {
+    public ResponseEntity<byte[]> getGenres(ServletWebRequest request) {
         log.info("Обработка запроса с получением всех жанров");
-        List<Genre> genres = genreService.getAll();
+        String etag = genreService.getEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ResponseEntity<byte[]> response = jsonCache.respond(request, "/genres", etag, genreService::getAll);
         log.info("Получен список всех жанров");
-        return genres;
+        return response;
     }
 
     @GetMapping("/{genreId}")
-    public Genre getGenreById(@PathVariable int genreId) {
+    public ResponseEntity<byte[]> getGenreById(@PathVariable int genreId, ServletWebRequest request) {
         log.info("Обработка запроса с получением жанра с id = {}", genreId);
+        String etag = genreService.getEtag();
         Genre genre = genreService.getGenreById(genreId);
         log.info("Получен жанр с id = {}", genreId);
-        return genre;
+        return jsonCache.respond(request, "/genres/" + genreId, etag, () -> genre);
     }
 
     @PostMapping
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Готовые UTF-8 тела JSON-ответов. Запись действительна, пока не изменилась версия, с которой её сериализовали:
+ * ETag из {@link ru.yandex.practicum.filmorate.storage.TableVersions} или экземпляр фильма из кэша хранилища,
+ * который заменяется при каждой записи фильма, а также жанров и рейтингов. Версии сравниваются через equals,
+ * у фильма он не переопределён, так что это сравнение экземпляров. Версия должна браться до чтения данных.
+ * Тела от {@code filmorate.json-cache.gzip-min-size} байт клиентам с {@code Accept-Encoding: gzip} отдаются сжатыми,
+ * сжатие тоже считается один раз.
+ */
+@Component
+public class JsonResponseCache {
+
+    private final ObjectWriter writer;
+    private final Cache<Object, Entry> entries;
+    private final int gzipMinSize;
+
+    @Autowired
+    public JsonResponseCache(ObjectMapper objectMapper,
+                             @Value("${filmorate.json-cache.max-size}") long maxSize,
+                             @Value("${filmorate.json-cache.gzip-min-size}") int gzipMinSize) {
+        this.writer = objectMapper.writer();
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+        this.gzipMinSize = gzipMinSize;
+    }
+
+    /**
+     * Без ключа тело сериализуется на один ответ и в кэш не попадает: так отдаются редкие варианты запроса,
+     * которые иначе вытесняли бы из кэша частые.
+     */
+    public ResponseEntity<byte[]> respond(ServletWebRequest request, Object key, Object version, Supplier<?> value) {
+        Entry entry = key == null ? null : entries.getIfPresent(key);
+        if (entry == null || !Objects.equals(entry.version, version)) {
+            entry = new Entry(version, serialize(value.get()));
+            if (key != null) {
+                entries.put(key, entry);
+            }
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (entry.json.length < gzipMinSize) {
+            return response.body(entry.json);
+        }
+        response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return response.body(entry.json);
+        }
+        weakenEtag(request.getResponse());
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzip());
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Сжатое тело отличается от несжатого побайтно, поэтому его ETag слабый, как у nginx.
+     * If-None-Match сравнивается со слабыми ETag, так что 304 по нему продолжает работать.
+     */
+    private static void weakenEtag(HttpServletResponse response) {
+        String etag = response == null ? null : response.getHeader(HttpHeaders.ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+        }
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].trim().matches("[qQ]\\s*=\\s*0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        final Object version;
+        final byte[] json;
+        private volatile byte[] gzip;
+
+        Entry(Object version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+
+        byte[] gzip() {
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                compressed = compress(json);
+                gzip = compressed;
+            }
+            return compressed;
+        }
+
+        private static byte[] compress(byte[] json) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 32);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -2,38 +2,45 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.mpa.MpaService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/mpa")
 @Slf4j
 public class MpaController {
 
     MpaService mpaService;
+    JsonResponseCache jsonCache;
 
     @Autowired
-    public MpaController(MpaService mpaService) {
+    public MpaController(MpaService mpaService, JsonResponseCache jsonCache) {
         this.mpaService = mpaService;
+        this.jsonCache = jsonCache;
     }
 
     @GetMapping
-    public List<Mpa> getMpa() {
+    public ResponseEntity<byte[]> getMpa(ServletWebRequest request) {
         log.info("Обработка запроса с получением всех рейтингов");
-        List<Mpa> mpaList = mpaService.getAll();
+        String etag = mpaService.getEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ResponseEntity<byte[]> response = jsonCache.respond(request, "/mpa", etag, mpaService::getAll);
         log.info("Получен список рейтингов");
-        return mpaList;
+        return response;
     }
 
     @GetMapping("/{mpaId}")
-    public Mpa getMpaById(@PathVariable int mpaId) {
+    public ResponseEntity<byte[]> getMpaById(@PathVariable int mpaId, ServletWebRequest request) {
         log.info("Обработка запроса с получением рейтинга с id = {}", mpaId);
+        String etag = mpaService.getEtag();
         Mpa mpa = mpaService.getMpaById(mpaId);
         log.info("Получен пользователь с id = {}", mpaId);
-        return mpa;
+        return jsonCache.respond(request, "/mpa/" + mpaId, etag, () -> mpa);
     }
 
     @PostMapping()
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
+
+import java.util.List;
+import java.util.function.Function;
+
+final class Pagination {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private Pagination() {
+    }
+
+    static boolean isRequested(Integer after, Integer limit) {
+        return after != null || limit != null;
+    }
+
+    static int after(Integer after) {
+        if (after == null) {
+            return 0;
+        }
+        if (after < 0) {
+            throw new ValidateException("Недопустимое значение after");
+        }
+        return after;
+    }
+
+    static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new ValidateException("Значение limit должно быть от 1 до " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    static <T> ResponseEntity<List<T>> page(List<T> items, int limit, Function<T, Integer> idGetter) {
+        if (items.size() < limit) {
+            return ResponseEntity.ok(items);
+        }
+        int lastId = idGetter.apply(items.get(items.size() - 1));
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", lastId)
+                .replaceQueryParam("limit", limit)
+                .toUriString();
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(items);
+    }
+}
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
+import ru.yandex.practicum.filmorate.exception.WrongArgumentException;
+import ru.yandex.practicum.filmorate.model.ExceptionResponse;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.film.ReactiveFilmService;
+
+import java.util.List;
+
+/**
+ * Реактивные аналоги {@code GET /films}, {@code GET /films/{filmId}} и {@code GET /films/popular} из
+ * {@link FilmController} с теми же параметрами, заголовком Link и кодами ошибок. {@code GET /films}
+ * с {@code Accept: application/x-ndjson} отдаёт фильмы по мере того, как клиент их читает.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("filmorate.reactive.enabled")
+public class ReactiveFilmHandler {
+
+    private static final int DEFAULT_POPULAR_COUNT = 10;
+
+    private final ReactiveFilmService filmService;
+
+    @Autowired
+    public ReactiveFilmHandler(ReactiveFilmService filmService) {
+        this.filmService = filmService;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/films/popular", deferred(this::getPopularFilms))
+                .GET("/films/{filmId}", deferred(this::getFilm))
+                .GET("/films", deferred(this::getFilms))
+                .onError(Throwable.class, this::handleError)
+                .build();
+    }
+
+    private Mono<ServerResponse> getFilms(ServerRequest request) {
+        Integer after = intParam(request, "after");
+        Integer limit = intParam(request, "limit");
+        if (!Pagination.isRequested(after, limit)) {
+            log.info("Обработка реактивного запроса с получением списка фильмов");
+            boolean ndjson = request.headers().accept().stream()
+                    .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+            return ServerResponse.ok()
+                    .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                    .body(filmService.getAll(), Film.class);
+        }
+
+        int afterId = Pagination.after(after);
+        int pageSize = Pagination.limit(limit);
+        log.info("Обработка реактивного запроса с получением страницы фильмов после id = {} длиной {}",
+                afterId, pageSize);
+        return filmService.getPage(afterId, pageSize)
+                .collectList()
+                .flatMap(films -> page(request, films, pageSize));
+    }
+
+    private Mono<ServerResponse> getFilm(ServerRequest request) {
+        int filmId = parseInt(request.pathVariable("filmId"), "filmId");
+        log.info("Обработка реактивного запроса с получением фильма с id = {}", filmId);
+        return filmService.getFilmById(filmId)
+                .flatMap(film -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(film));
+    }
+
+    private Mono<ServerResponse> getPopularFilms(ServerRequest request) {
+        Integer count = intParam(request, "count");
+        if (count == null) {
+            count = DEFAULT_POPULAR_COUNT;
+        }
+        log.info("Обработка реактивного запроса с получением списка популярных фильмов");
+        if (count <= 0) {
+            throw new WrongArgumentException("Недопустимое значение count");
+        }
+        // список короткий, а собранный целиком превращает ошибку в код ответа, а не в оборванное тело
+        return filmService.getPopularFilms(count, intParam(request, "genreId"), intParam(request, "year"),
+                        intParam(request, "mpaId"))
+                .collectList()
+                .flatMap(films -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(films));
+    }
+
+    private Mono<ServerResponse> page(ServerRequest request, List<Film> films, int limit) {
+        ServerResponse.BodyBuilder response = ServerResponse.ok().contentType(MediaType.APPLICATION_JSON);
+        if (films.size() == limit) {
+            String next = request.uriBuilder()
+                    .replaceQueryParam("after", films.get(films.size() - 1).getId())
+                    .replaceQueryParam("limit", limit)
+                    .build()
+                    .toString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.bodyValue(films);
+    }
+
+    /**
+     * Те же коды, что у {@link ErrorHandler}. Ошибка посреди уже начатой выгрузки только обрывает ответ.
+     */
+    private Mono<ServerResponse> handleError(Throwable e, ServerRequest request) {
+        if (e instanceof NotFoundException) {
+            log.warn("NotFoundException, {}", e.getMessage());
+            return error(HttpStatus.NOT_FOUND, new ExceptionResponse(e.getMessage()));
+        }
+        if (e instanceof ValidateException) {
+            log.warn("ValidateException, {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, new ExceptionResponse(e.getMessage()));
+        }
+        log.warn("Внутреннее исключение {}", e.getMessage(), e);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR,
+                new ExceptionResponse(e.getMessage(), ErrorHandler.printStackTrace(e)));
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, ExceptionResponse body) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+    }
+
+    /**
+     * Исключения, брошенные при разборе параметров, превращаются в сигнал ошибки и доходят до {@link #handleError}.
+     */
+    private static HandlerFunction<ServerResponse> deferred(HandlerFunction<ServerResponse> handler) {
+        return request -> Mono.defer(() -> handler.handle(request));
+    }
+
+    private static Integer intParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .map(value -> parseInt(value, name))
+                .orElse(null);
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ValidateException("Недопустимое значение " + name);
+        }
+    }
+}
@@ -1,30 +1,62 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
+import ru.yandex.practicum.filmorate.model.BulkImportReport;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.user.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("/users")
 @Slf4j
 public class UserController {
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int MAX_RECOMMENDATIONS = 100;
+
     UserService userService;
+    ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public List<User> getUsers() {
-        log.info("Обработка запроса с получением всех пользователей");
-        List<User> users = userService.getAll();
-        log.info("Получен список пользователей");
-        return users;
+    public ResponseEntity<List<User>> getUsers(@RequestParam(required = false) Integer after,
+                                               @RequestParam(required = false) Integer limit) {
+        if (!Pagination.isRequested(after, limit)) {
+            log.info("Обработка запроса с получением всех пользователей");
+            List<User> users = userService.getAll();
+            log.info("Получен список пользователей");
+            return ResponseEntity.ok(users);
+        }
+
+        int afterId = Pagination.after(after);
+        int pageSize = Pagination.limit(limit);
+        log.info("Обработка запроса с получением страницы пользователей после id = {} длиной {}", afterId, pageSize);
+        List<User> users = userService.getPage(afterId, pageSize);
+        log.info("Получена страница пользователей длиной {}", users.size());
+        return Pagination.page(users, pageSize, User::getId);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        log.info("Обработка запроса с потоковой выгрузкой пользователей");
+        return NdjsonStream.of(objectMapper, userService::streamAll);
     }
 
     @GetMapping("/{userId}")
@@ -44,6 +76,26 @@ public class UserController {
         return newUser;
     }
 
+    @PostMapping("/bulk")
+    public BulkImportReport importUsers(InputStream body) throws IOException {
+        log.info("Обработка запроса с массовым импортом пользователей");
+        try (MappingIterator<User> users = objectMapper.readerFor(User.class).readValues(body)) {
+            BulkImportReport report = userService.importUsers(users);
+            log.info("Импорт завершен, создано пользователей: {}", report.getImported());
+            return report;
+        }
+    }
+
+    @PostMapping("/friends/bulk")
+    public BulkImportReport importFriendships(InputStream body) throws IOException {
+        log.info("Обработка запроса с массовым импортом дружб");
+        try (MappingIterator<Friendship> friendships = objectMapper.readerFor(Friendship.class).readValues(body)) {
+            BulkImportReport report = userService.importFriendships(friendships);
+            log.info("Импорт завершен, добавлено дружб: {}", report.getImported());
+            return report;
+        }
+    }
+
     @PutMapping()
     public User updateUser(@RequestBody User user) {
         int userId = user.getId();
@@ -82,11 +134,39 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable int id) {
-        log.info("Обработка запроса на получение друзей пользователя с id = {}", id);
-        List<User> friends = userService.getUserFriends(id);
-        log.info("Получены друзья пользователя с id = {}", id);
-        return friends;
+    public ResponseEntity<List<User>> getFriends(@PathVariable int id,
+                                                 @RequestParam(required = false) Integer after,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            throw new ValidateException("Поддерживается только fields=id");
+        }
+        if (!Pagination.isRequested(after, limit)) {
+            log.info("Обработка запроса на получение друзей пользователя с id = {}", id);
+            List<User> friends = userService.getUserFriends(id);
+            log.info("Получены друзья пользователя с id = {}", id);
+            return ResponseEntity.ok(friends);
+        }
+
+        int afterId = Pagination.after(after);
+        int pageSize = Pagination.limit(limit);
+        log.info("Обработка запроса на получение страницы друзей пользователя с id = {} после id = {} длиной {}",
+                id, afterId, pageSize);
+        List<User> friends = userService.getUserFriends(id, afterId, pageSize);
+        log.info("Получена страница друзей пользователя с id = {} длиной {}", id, friends.size());
+        return Pagination.page(friends, pageSize, User::getId);
+    }
+
+    @GetMapping(value = "/{id}/friends", params = "fields=id")
+    public ResponseEntity<List<Integer>> getFriendIds(@PathVariable int id,
+                                                      @RequestParam(required = false) Integer after,
+                                                      @RequestParam(required = false) Integer limit) {
+        int afterId = Pagination.after(after);
+        int pageSize = Pagination.isRequested(after, limit) ? Pagination.limit(limit) : Integer.MAX_VALUE;
+        log.info("Обработка запроса на получение id друзей пользователя с id = {}", id);
+        List<Integer> friendIds = userService.getUserFriendIds(id, afterId, pageSize);
+        log.info("Получены id друзей пользователя с id = {}", id);
+        return Pagination.page(friendIds, pageSize, friendId -> friendId);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -96,4 +176,28 @@ public class UserController {
         log.info("Получены общие друзья пользователей с id = {} и id = {}", id, otherId);
         return mutualFriends;
     }
+
+    @GetMapping("/{id}/suggestions")
+    public List<User> getSuggestions(@PathVariable int id,
+                                     @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0 || limit > MAX_SUGGESTIONS) {
+            throw new ValidateException("Значение limit должно быть от 1 до " + MAX_SUGGESTIONS);
+        }
+        log.info("Обработка запроса на получение рекомендаций друзей для пользователя с id = {}", id);
+        List<User> suggestions = userService.getSuggestions(id, limit);
+        log.info("Получены рекомендации друзей для пользователя с id = {}", id);
+        return suggestions;
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable int id,
+                                         @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0 || limit > MAX_RECOMMENDATIONS) {
+            throw new ValidateException("Значение limit должно быть от 1 до " + MAX_RECOMMENDATIONS);
+        }
+        log.info("Обработка запроса на получение рекомендаций фильмов для пользователя с id = {}", id);
+        List<Film> films = userService.getRecommendations(id, limit);
+        log.info("Получено {} рекомендаций фильмов для пользователя с id = {}", films.size(), id);
+        return films;
+    }
 }
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.edge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import ru.yandex.practicum.filmorate.controller.ReactiveFilmHandler;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmR2dbcStorage;
+import ru.yandex.practicum.filmorate.storage.film.ReactiveFilmStorage;
+
+/**
+ * При {@code filmorate.reactive.enabled=true} рядом с Tomcat на {@code filmorate.reactive.port} поднимается Netty
+ * с реактивным чтением фильмов ({@link ReactiveFilmHandler}). R2DBC открывает ту же базу H2, что и JDBC:
+ * URL берётся из {@code spring.datasource.url}, встроенная H2 разделяет базу между соединениями внутри процесса.
+ */
+@Configuration
+@ConditionalOnProperty("filmorate.reactive.enabled")
+public class ReactiveEdgeConfiguration {
+
+    private static final String H2_PREFIX = "jdbc:h2:";
+
+    /**
+     * Фабрика соединений не объявляется бином: при бине {@link ConnectionFactory} Spring Boot
+     * не создаёт JDBC {@code DataSource}.
+     */
+    @Bean
+    public ReactiveFilmStorage reactiveFilmStorage(DataSourceProperties properties,
+                                                   FilmPopularityIndex popularityIndex) {
+        return new FilmR2dbcStorage(connectionFactory(properties), popularityIndex);
+    }
+
+    private static ConnectionFactory connectionFactory(DataSourceProperties properties) {
+        String url = properties.determineUrl();
+        if (url == null || !url.startsWith(H2_PREFIX)) {
+            throw new IllegalStateException("Реактивное чтение поддерживает только H2, а spring.datasource.url = "
+                    + url);
+        }
+        H2ConnectionConfiguration.Builder configuration = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_PREFIX.length()))
+                .username(properties.determineUsername());
+        String password = properties.determinePassword();
+        if (password != null) {
+            configuration.password(password);
+        }
+        return new H2ConnectionFactory(configuration.build());
+    }
+
+    @Bean
+    public ReactiveEdgeServer reactiveEdgeServer(ReactiveFilmHandler filmHandler, ObjectMapper objectMapper,
+                                                 @Value("${filmorate.reactive.port}") int port) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return new ReactiveEdgeServer(RouterFunctions.toHttpHandler(filmHandler.routes(), strategies), port);
+    }
+}
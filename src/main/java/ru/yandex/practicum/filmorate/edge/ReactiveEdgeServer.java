@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.edge;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Netty-сервер на event loop-потоках reactor-netty (по одному на ядро). Открывает порт после обновления контекста,
+ * когда индексы хранилищ уже построены, и закрывается раньше остальных бинов.
+ */
+@Slf4j
+public class ReactiveEdgeServer implements SmartLifecycle {
+
+    private final HttpHandler httpHandler;
+    private final int port;
+    private volatile DisposableServer server;
+
+    public ReactiveEdgeServer(HttpHandler httpHandler, int port) {
+        this.httpHandler = httpHandler;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        log.info("Реактивное чтение фильмов доступно на порту {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        server.disposeNow();
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Фактический порт, если в {@code filmorate.reactive.port} задан 0.
+     */
+    public int getPort() {
+        return server.port();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры на каждый публичный метод хранилищ в базе ({@code *DbStorage}) и сервисов ({@code filmorate.service})
+ * с тегами class, method и exception. Кэширующие обёртки хранилищ не замеряются: иначе промах считался бы дважды,
+ * а попадания видны в метриках кэшей. Таймер успешных вызовов кэшируется по методу, так что на горячем пути
+ * остаются только поиск в ConcurrentHashMap и два вызова часов.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(value = "filmorate.metrics.methods.enabled", matchIfMissing = true)
+public class MethodMetricsAspect {
+
+    static final String STORAGE_TIMER = "filmorate.storage";
+    static final String SERVICE_TIMER = "filmorate.service";
+
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry registry;
+    private final Map<Method, Timer> storageTimers = new ConcurrentHashMap<>();
+    private final Map<Method, Timer> serviceTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MethodMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage..*DbStorage.*(..))")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, STORAGE_TIMER, storageTimers);
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.service..*Service.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, SERVICE_TIMER, serviceTimers);
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String name, Map<Method, Timer> timers) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        long start = registry.config().clock().monotonicTime();
+        try {
+            Object result = joinPoint.proceed();
+            timers.computeIfAbsent(method, m -> timer(name, m, NO_EXCEPTION))
+                    .record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(name, method, e.getClass().getSimpleName())
+                    .record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(String name, Method method, String exception) {
+        return Timer.builder(name)
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .register(registry);
+    }
+}
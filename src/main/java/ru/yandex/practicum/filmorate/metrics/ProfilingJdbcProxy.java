@@ -0,0 +1,215 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * JDK-прокси над {@link NamedParameterJdbcOperations} и {@link JdbcOperations}, который замеряет каждый вызов
+ * и передаёт в {@link SqlProfiler} текст запроса, время, число строк и замаскированные параметры.
+ * Упавшие вызовы тоже записываются, с числом строк -1.
+ * Если запрос передан не строкой, а через {@link PreparedStatementCreator} или {@link ConnectionCallback},
+ * текст перехватывается на {@link Connection#prepareStatement}.
+ */
+final class ProfilingJdbcProxy implements InvocationHandler {
+
+    private static final String UNKNOWN_SQL = "<unknown>";
+    private static final String HIDDEN = "***";
+
+    private final Object target;
+    private final SqlProfiler profiler;
+    private volatile JdbcOperations jdbcOperations;
+
+    private ProfilingJdbcProxy(Object target, SqlProfiler profiler) {
+        this.target = target;
+        this.profiler = profiler;
+    }
+
+    static NamedParameterJdbcOperations wrap(NamedParameterJdbcOperations target, SqlProfiler profiler) {
+        return (NamedParameterJdbcOperations) Proxy.newProxyInstance(ProfilingJdbcProxy.class.getClassLoader(),
+                new Class<?>[]{NamedParameterJdbcOperations.class}, new ProfilingJdbcProxy(target, profiler));
+    }
+
+    static JdbcOperations wrap(JdbcOperations target, SqlProfiler profiler) {
+        return (JdbcOperations) Proxy.newProxyInstance(ProfilingJdbcProxy.class.getClassLoader(),
+                new Class<?>[]{JdbcOperations.class}, new ProfilingJdbcProxy(target, profiler));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeTarget(method, args);
+        }
+        if (method.getName().equals("getJdbcOperations")) {
+            if (jdbcOperations == null) {
+                jdbcOperations = wrap(((NamedParameterJdbcOperations) target).getJdbcOperations(), profiler);
+            }
+            return jdbcOperations;
+        }
+        if (args == null || args.length == 0) {
+            return invokeTarget(method, args);
+        }
+
+        String[] capturedSql = {null};
+        AtomicLong rowCounter = null;
+        Object[] actualArgs = args.clone();
+        for (int i = 0; i < actualArgs.length; i++) {
+            Object arg = actualArgs[i];
+            if (arg instanceof PreparedStatementCreator && !(arg instanceof SqlProvider)) {
+                PreparedStatementCreator creator = (PreparedStatementCreator) arg;
+                actualArgs[i] = (PreparedStatementCreator) con ->
+                        creator.createPreparedStatement(capturing(con, capturedSql));
+            } else if (arg instanceof ConnectionCallback) {
+                ConnectionCallback<?> callback = (ConnectionCallback<?>) arg;
+                actualArgs[i] = (ConnectionCallback<Object>) con ->
+                        callback.doInConnection(capturing(con, capturedSql));
+            } else if (arg instanceof RowCallbackHandler) {
+                RowCallbackHandler handler = (RowCallbackHandler) arg;
+                AtomicLong counter = new AtomicLong();
+                rowCounter = counter;
+                actualArgs[i] = (RowCallbackHandler) rs -> {
+                    counter.incrementAndGet();
+                    handler.processRow(rs);
+                };
+            }
+        }
+
+        long start = System.nanoTime();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = invokeTarget(method, actualArgs);
+            failed = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            String sql = sql(args[0], capturedSql[0]);
+            long rows = failed ? -1 : rowCounter != null ? rowCounter.get() : rows(method, result);
+            profiler.record(sql, elapsed, rows, failed, () -> redact(args));
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static Connection capturing(Connection connection, String[] capturedSql) {
+        return (Connection) Proxy.newProxyInstance(ProfilingJdbcProxy.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String
+                            && capturedSql[0] == null) {
+                        capturedSql[0] = (String) args[0];
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private static String sql(Object first, String captured) {
+        if (first instanceof String) {
+            return normalize((String) first);
+        }
+        if (first instanceof SqlProvider && ((SqlProvider) first).getSql() != null) {
+            return normalize(((SqlProvider) first).getSql());
+        }
+        return captured != null ? normalize(captured) : UNKNOWN_SQL;
+    }
+
+    private static String normalize(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+
+    private static long rows(Method method, Object result) {
+        if (method.getName().equals("update") || method.getName().equals("batchUpdate")) {
+            if (result instanceof Integer) {
+                return (Integer) result;
+            }
+            if (result instanceof int[]) {
+                return Arrays.stream((int[]) result).filter(count -> count > 0).sum();
+            }
+            if (result instanceof int[][]) {
+                return Arrays.stream((int[][]) result).flatMapToInt(Arrays::stream).filter(count -> count > 0).sum();
+            }
+            return -1;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (method.getName().startsWith("queryFor")) {
+            return 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Числа и флаги показываются как есть (это идентификаторы и лимиты), строки и даты скрываются,
+     * от коллекций и пакетов остаётся только размер.
+     */
+    private static String redact(Object[] args) {
+        return Arrays.stream(args, 1, args.length)
+                .map(ProfilingJdbcProxy::redactArgument)
+                .filter(arg -> !arg.isEmpty())
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static String redactArgument(Object arg) {
+        if (arg instanceof SqlParameterSource) {
+            SqlParameterSource source = (SqlParameterSource) arg;
+            String[] names = source.getParameterNames();
+            if (names == null) {
+                return HIDDEN;
+            }
+            return Arrays.stream(names)
+                    .map(name -> name + "=" + redactValue(source.getValue(name)))
+                    .collect(Collectors.joining(", "));
+        }
+        if (arg instanceof Map) {
+            return ((Map<?, ?>) arg).entrySet().stream()
+                    .map(entry -> entry.getKey() + "=" + redactValue(entry.getValue()))
+                    .collect(Collectors.joining(", "));
+        }
+        if (arg instanceof Object[]) {
+            Object[] values = (Object[]) arg;
+            if (values instanceof SqlParameterSource[] || values instanceof Map[]) {
+                return "batch=" + values.length;
+            }
+            return Arrays.stream(values).map(ProfilingJdbcProxy::redactValue).collect(Collectors.joining(", "));
+        }
+        if (arg instanceof Collection) {
+            return "batch=" + ((Collection<?>) arg).size();
+        }
+        return "";
+    }
+
+    private static String redactValue(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean) {
+            return String.valueOf(value);
+        }
+        if (value instanceof Collection) {
+            return "[" + ((Collection<?>) value).size() + " items]";
+        }
+        return HIDDEN;
+    }
+}
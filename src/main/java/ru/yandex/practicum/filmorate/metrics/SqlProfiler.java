@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.SqlExecution;
+import ru.yandex.practicum.filmorate.model.SqlProfile;
+import ru.yandex.practicum.filmorate.model.SqlStatementStats;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Статистика по SQL-запросам: суммарное время, число выполнений, строк и ошибок на каждый текст запроса,
+ * плюс top-N самых медленных выполнений с замаскированными параметрами. Запросы дольше порога пишутся в лог.
+ */
+@Slf4j
+@Component
+public class SqlProfiler {
+
+    static final int MAX_STATEMENTS = 1000;
+
+    private static final double NANOS_IN_MILLI = 1_000_000.0;
+
+    private final long slowThresholdNanos;
+    private final int topSize;
+    private final Map<String, Stats> statements = new ConcurrentHashMap<>();
+    private final PriorityQueue<Execution> slowest = new PriorityQueue<>(Comparator.comparingLong(e -> e.nanos));
+    private volatile long slowestFloorNanos;
+    private volatile Instant since = Instant.now();
+
+    @Autowired
+    public SqlProfiler(@Value("${filmorate.sql-profiler.slow-threshold}") Duration slowThreshold,
+                       @Value("${filmorate.sql-profiler.top-size}") int topSize) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.topSize = topSize;
+    }
+
+    /**
+     * @param rows   число прочитанных или изменённых строк, -1 если неизвестно или запрос упал
+     * @param failed запрос завершился исключением
+     * @param params параметры вычисляются лениво, только для медленных запросов и кандидатов в top-N
+     */
+    public void record(String sql, long nanos, long rows, boolean failed, Supplier<String> params) {
+        Stats stats = statements.get(sql);
+        if (stats == null && statements.size() < MAX_STATEMENTS) {
+            stats = statements.computeIfAbsent(sql, key -> new Stats());
+        }
+        if (stats != null) {
+            stats.add(nanos, rows, failed);
+        }
+
+        String redacted = null;
+        if (nanos >= slowThresholdNanos) {
+            redacted = params.get();
+            log.warn("Медленный {}запрос: {} мс, строк {}: {} {}", failed ? "упавший " : "",
+                    nanos / 1_000_000, rows, sql, redacted);
+        }
+        if (nanos > slowestFloorNanos) {
+            addSlowest(new Execution(sql, nanos, rows, redacted != null ? redacted : params.get(), Instant.now()));
+        }
+    }
+
+    public SqlProfile profile(int limit) {
+        List<SqlStatementStats> top = statements.entrySet().stream()
+                .map(entry -> entry.getValue().toStats(entry.getKey()))
+                .sorted(Comparator.comparingDouble(SqlStatementStats::getTotalMillis).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+
+        List<Execution> executions;
+        synchronized (slowest) {
+            executions = new ArrayList<>(slowest);
+        }
+        List<SqlExecution> slowestExecutions = executions.stream()
+                .sorted(Comparator.comparingLong((Execution e) -> e.nanos).reversed())
+                .limit(limit)
+                .map(e -> new SqlExecution(e.sql, e.nanos / NANOS_IN_MILLI, e.rows, e.params, e.executedAt))
+                .collect(Collectors.toList());
+
+        return new SqlProfile(since, slowThresholdNanos / NANOS_IN_MILLI, top, slowestExecutions);
+    }
+
+    public void reset() {
+        synchronized (slowest) {
+            statements.clear();
+            slowest.clear();
+            slowestFloorNanos = 0;
+            since = Instant.now();
+        }
+    }
+
+    private void addSlowest(Execution execution) {
+        synchronized (slowest) {
+            slowest.add(execution);
+            if (slowest.size() > topSize) {
+                slowest.poll();
+            }
+            if (slowest.size() == topSize) {
+                slowestFloorNanos = slowest.peek().nanos;
+            }
+        }
+    }
+
+    private static final class Stats {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void add(long nanos, long rowCount, boolean failed) {
+            executions.increment();
+            if (failed) {
+                errors.increment();
+            }
+            totalNanos.add(nanos);
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        SqlStatementStats toStats(String sql) {
+            long count = executions.sum();
+            long total = totalNanos.sum();
+            return new SqlStatementStats(sql, count, total / NANOS_IN_MILLI,
+                    count == 0 ? 0 : total / NANOS_IN_MILLI / count, maxNanos.get() / NANOS_IN_MILLI, rows.sum(),
+                    errors.sum());
+        }
+    }
+
+    private static final class Execution {
+        private final String sql;
+        private final long nanos;
+        private final long rows;
+        private final String params;
+        private final Instant executedAt;
+
+        Execution(String sql, long nanos, long rows, String params, Instant executedAt) {
+            this.sql = sql;
+            this.nanos = nanos;
+            this.rows = rows;
+            this.params = params;
+            this.executedAt = executedAt;
+        }
+    }
+}
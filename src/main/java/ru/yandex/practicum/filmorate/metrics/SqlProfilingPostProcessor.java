@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Оборачивает бин {@link NamedParameterJdbcOperations} профилирующим прокси, хранилища получают его
+ * вместо исходного шаблона без изменений в коде.
+ */
+@Component
+@ConditionalOnProperty(value = "filmorate.sql-profiler.enabled", matchIfMissing = true)
+public class SqlProfilingPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlProfiler> profiler;
+
+    public SqlProfilingPostProcessor(ObjectProvider<SqlProfiler> profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof NamedParameterJdbcOperations) {
+            return ProfilingJdbcProxy.wrap((NamedParameterJdbcOperations) bean, profiler.getObject());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BulkImportItem {
+    private final int index;
+    private final Integer id;
+    private final String error;
+
+    public static BulkImportItem imported(int index, int id) {
+        return new BulkImportItem(index, id, null);
+    }
+
+    public static BulkImportItem failed(int index, String error) {
+        return new BulkImportItem(index, null, error);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.List;
+
+@Getter
+public class BulkImportReport {
+    private final int imported;
+    private final int failed;
+    private final int skipped;
+    private final long elapsedMillis;
+    private final long itemsPerSecond;
+    private final List<BulkImportItem> items;
+
+    public BulkImportReport(int total, List<BulkImportItem> items, long elapsedNanos) {
+        this(total, 0, items, elapsedNanos);
+    }
+
+    /**
+     * @param skipped записи, которые уже были в базе и не записывались повторно
+     */
+    public BulkImportReport(int total, int skipped, List<BulkImportItem> items, long elapsedNanos) {
+        items.sort(Comparator.comparingInt(BulkImportItem::getIndex));
+        this.items = items;
+        this.failed = (int) items.stream().filter(item -> item.getError() != null).count();
+        this.skipped = skipped;
+        this.imported = total - failed - skipped;
+        this.elapsedMillis = elapsedNanos / 1_000_000;
+        this.itemsPerSecond = elapsedNanos == 0 ? 0 : total * 1_000_000_000L / elapsedNanos;
+    }
+}
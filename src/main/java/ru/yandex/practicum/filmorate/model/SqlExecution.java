@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class SqlExecution {
+    private final String sql;
+    private final double millis;
+    private final long rows;
+    private final String params;
+    private final Instant executedAt;
+}
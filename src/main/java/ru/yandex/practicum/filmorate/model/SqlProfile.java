@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SqlProfile {
+    private final Instant since;
+    private final double slowThresholdMillis;
+    private final List<SqlStatementStats> statements;
+    private final List<SqlExecution> slowest;
+}
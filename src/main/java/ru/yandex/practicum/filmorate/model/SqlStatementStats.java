@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SqlStatementStats {
+    private final String sql;
+    private final long executions;
+    private final double totalMillis;
+    private final double meanMillis;
+    private final double maxMillis;
+    private final long rows;
+    private final long errors;
+}
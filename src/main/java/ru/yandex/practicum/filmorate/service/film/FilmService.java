@@ -2,47 +2,82 @@ package ru.yandex.practicum.filmorate.service.film;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
+import ru.yandex.practicum.filmorate.model.BulkImportItem;
+import ru.yandex.practicum.filmorate.model.BulkImportReport;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.ValidationService;
+import ru.yandex.practicum.filmorate.service.genre.GenreService;
+import ru.yandex.practicum.filmorate.service.mpa.MpaService;
+import ru.yandex.practicum.filmorate.storage.TableVersions;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.replica.ReplicaRouting;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class FilmService {
 
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+    private static final TableVersions.Table[] FILM_TABLES = {TableVersions.Table.FILMS,
+            TableVersions.Table.FILM_GENRE, TableVersions.Table.LIKES, TableVersions.Table.GENRE,
+            TableVersions.Table.RATING_MPA};
+
     final FilmStorage filmStorage;
     final UserStorage userStorage;
-    final MpaStorage mpaStorage;
-    final GenreStorage genreStorage;
+    final MpaService mpaService;
+    final GenreService genreService;
     final ValidationService validationService;
+    final LikeWriteBehindQueue likeQueue;
+    final TableVersions versions;
 
 
     @Autowired
     public FilmService(FilmStorage filmStorage,
                        UserStorage userStorage,
-                       MpaStorage mpaStorage,
-                       GenreStorage genreStorage,
-                       ValidationService validationService) {
+                       MpaService mpaService,
+                       GenreService genreService,
+                       ValidationService validationService,
+                       LikeWriteBehindQueue likeQueue,
+                       TableVersions versions) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.validationService = validationService;
-        this.mpaStorage = mpaStorage;
-        this.genreStorage = genreStorage;
+        this.mpaService = mpaService;
+        this.genreService = genreService;
+        this.likeQueue = likeQueue;
+        this.versions = versions;
+    }
+
+    /**
+     * ETag списков фильмов. Берётся до чтения, поэтому ответ с ним не старше версии; сами списки с ETag
+     * читаются в первичной базе: закэшированный клиентом ответ с отстающей реплики прожил бы до следующей записи.
+     */
+    public String getFilmsEtag() {
+        return versions.etag(FILM_TABLES);
     }
 
     public List<Film> getAll() {
-        return filmStorage.getFilms();
+        return ReplicaRouting.onPrimary(filmStorage::getFilms);
+
+    }
 
+    public void streamAll(Consumer<Film> consumer) {
+        filmStorage.streamFilms(consumer);
+    }
+
+    public List<Film> getPage(int after, int limit) {
+        return ReplicaRouting.onPrimary(() -> filmStorage.getFilms(after, limit));
     }
 
     public Film getFilmById(int id) {
@@ -54,19 +89,48 @@ public class FilmService {
     public Film createFilm(Film film) {
         validationService.validateCreateFilm(film);
 
-        mpaStorage.getMpaById(film.getMpa().getId())
-                .orElseThrow(() -> new NotFoundException("Такого рейтинга не существует"));
+        checkMpa(film);
 
         checkGenres(film);
 
         return filmStorage.createFilm(film);
     }
 
+    public BulkImportReport importFilms(Iterator<Film> films) {
+        long start = System.nanoTime();
+        List<BulkImportItem> items = new ArrayList<>();
+        List<Film> chunk = new ArrayList<>();
+        List<Integer> chunkIndexes = new ArrayList<>();
+        int index = 0;
+        while (films.hasNext()) {
+            int current = index++;
+            try {
+                Film film = films.next();
+                validationService.validateCreateFilm(film);
+                checkMpa(film);
+                checkGenres(film);
+                chunk.add(film);
+                chunkIndexes.add(current);
+            } catch (RuntimeException e) {
+                items.add(BulkImportItem.failed(current, e.getMessage()));
+            }
+
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                saveChunk(chunk, chunkIndexes, items);
+            }
+        }
+        saveChunk(chunk, chunkIndexes, items);
+
+        BulkImportReport report = new BulkImportReport(index, items, System.nanoTime() - start);
+        log.info("Импортировано фильмов: {}, отклонено: {}, скорость {} фильмов/с",
+                report.getImported(), report.getFailed(), report.getItemsPerSecond());
+        return report;
+    }
+
     public void updateFilm(Film film) {
         validationService.validateUpdateFilm(film);
 
-        mpaStorage.getMpaById(film.getMpa().getId())
-                .orElseThrow(() -> new NotFoundException("Такого рейтинга не существует"));
+        checkMpa(film);
 
         checkGenres(film);
 
@@ -91,6 +155,10 @@ public class FilmService {
         User user = userStorage.getUserById(userId)
                 .orElseThrow(() -> new NotFoundException("Такого пользователя не существует"));
 
+        if (likeQueue.isEnabled()) {
+            likeQueue.submit(new LikeEvent(filmId, userId, true));
+            return;
+        }
         filmStorage.addLike(film, user);
     }
 
@@ -100,24 +168,74 @@ public class FilmService {
         User user = userStorage.getUserById(userId)
                 .orElseThrow(() -> new NotFoundException("Такого пользователя не существует"));
 
+        if (likeQueue.isEnabled()) {
+            likeQueue.submit(new LikeEvent(filmId, userId, false));
+            return;
+        }
         filmStorage.deleteLike(film, user);
     }
 
     public List<Film> getPopularFilms(Integer count) {
 
-        return filmStorage.getPopularFilms(count);
+        return ReplicaRouting.onPrimary(() -> filmStorage.getPopularFilms(count));
     }
 
-    private void checkGenres(Film film) {
-        if (film.getGenres() != null) {
-            List<Integer> genresIds = film.getGenres().stream()
-                    .map(Genre::getId)
-                    .collect(Collectors.toList());
-            List<Genre> genres = genreStorage.getGenresById(genresIds);
-
-            if (genresIds.size() != genres.size()) {
-                throw new NotFoundException("Найдены не все жанры");
+    public List<Film> getPopularFilms(Integer count, Integer genreId, Integer year, Integer mpaId) {
+        if (genreId == null && year == null && mpaId == null) {
+            return getPopularFilms(count);
+        }
+        if (genreId != null && !genreService.exists(genreId)) {
+            throw new NotFoundException("Такого жанра не существует");
+        }
+        if (mpaId != null && !mpaService.exists(mpaId)) {
+            throw new NotFoundException("Такого рейтинга не существует");
+        }
+
+        return ReplicaRouting.onPrimary(() -> filmStorage.getPopularFilms(count, genreId, year, mpaId));
+    }
+
+    public List<Film> getSimilarFilms(int id, int limit) {
+        getFilmById(id);
+
+        return filmStorage.getSimilarFilms(id, limit);
+    }
+
+    public List<Film> searchFilms(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidateException("Поисковый запрос не может быть пустым");
+        }
+        return filmStorage.searchFilms(query, limit);
+    }
+
+    private void saveChunk(List<Film> chunk, List<Integer> chunkIndexes, List<BulkImportItem> items) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            filmStorage.createFilms(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                items.add(BulkImportItem.imported(chunkIndexes.get(i), chunk.get(i).getId()));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Не удалось сохранить пачку из {} фильмов: {}", chunk.size(), e.getMessage());
+            for (int index : chunkIndexes) {
+                items.add(BulkImportItem.failed(index, "Ошибка записи в базу"));
             }
         }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private void checkMpa(Film film) {
+        if (!mpaService.exists(film.getMpa().getId())) {
+            throw new NotFoundException("Такого рейтинга не существует");
+        }
+    }
+
+    private void checkGenres(Film film) {
+        if (film.getGenres() != null && !film.getGenres().stream()
+                .allMatch(genre -> genreService.exists(genre.getId()))) {
+            throw new NotFoundException("Найдены не все жанры");
+        }
     }
 }
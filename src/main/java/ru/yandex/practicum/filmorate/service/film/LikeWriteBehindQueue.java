@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Component
+public class LikeWriteBehindQueue {
+
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final int capacity;
+    private final Map<Long, LikeEvent> pending = new LinkedHashMap<>();
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final Condition notFull = pendingLock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Timer flushTimer;
+
+    @Autowired
+    public LikeWriteBehindQueue(FilmStorage filmStorage,
+                                MeterRegistry meterRegistry,
+                                @Value("${filmorate.likes.write-behind.enabled}") boolean enabled,
+                                @Value("${filmorate.likes.write-behind.capacity}") int capacity) {
+        this.filmStorage = filmStorage;
+        this.enabled = enabled;
+        this.capacity = capacity;
+
+        Gauge.builder("filmorate.likes.queue.depth", this, LikeWriteBehindQueue::size)
+                .description("Лайки, ожидающие записи в базу")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("filmorate.likes.flush")
+                .description("Время записи пачки лайков в базу")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Очередь ограничена: при {@code capacity} ожидающих лайках новый ждёт, пока планировщик запишет пачку.
+     * Сам отправитель в базу не пишет, иначе запросы стояли бы в очереди за чужой JDBC-записью.
+     * Повторный лайк той же пары заменяет ожидающий и места не занимает.
+     */
+    public void submit(LikeEvent event) {
+        long key = key(event);
+        pendingLock.lock();
+        try {
+            while (pending.size() >= capacity && !pending.containsKey(key)) {
+                notFull.awaitUninterruptibly();
+            }
+            pending.put(key, event);
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    public int size() {
+        pendingLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<LikeEvent> batch;
+            pendingLock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+                notFull.signalAll();
+            } finally {
+                pendingLock.unlock();
+            }
+            flushTimer.record(() -> write(batch));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<LikeEvent> batch) {
+        try {
+            filmStorage.applyLikes(batch);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось записать пачку из {} лайков, записываем по одному: {}", batch.size(), e.getMessage());
+            for (LikeEvent event : batch) {
+                try {
+                    filmStorage.applyLikes(List.of(event));
+                } catch (DataAccessException ex) {
+                    log.warn("Лайк фильму с id = {} от пользователя с id = {} отброшен: {}",
+                            event.getFilmId(), event.getUserId(), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private static long key(LikeEvent event) {
+        return ((long) event.getFilmId() << 32) | (event.getUserId() & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.genre.GenreService;
+import ru.yandex.practicum.filmorate.service.mpa.MpaService;
+import ru.yandex.practicum.filmorate.storage.film.ReactiveFilmStorage;
+
+@Service
+@ConditionalOnProperty("filmorate.reactive.enabled")
+public class ReactiveFilmService {
+
+    final ReactiveFilmStorage filmStorage;
+    final GenreService genreService;
+    final MpaService mpaService;
+
+    @Autowired
+    public ReactiveFilmService(ReactiveFilmStorage filmStorage, GenreService genreService, MpaService mpaService) {
+        this.filmStorage = filmStorage;
+        this.genreService = genreService;
+        this.mpaService = mpaService;
+    }
+
+    public Flux<Film> getAll() {
+        return filmStorage.getFilms();
+    }
+
+    public Flux<Film> getPage(int after, int limit) {
+        return filmStorage.getFilms(after, limit);
+    }
+
+    public Mono<Film> getFilmById(int id) {
+        return filmStorage.getFilmById(id)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Такого фильма еще не существует в библиотеке")));
+    }
+
+    public Flux<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId) {
+        // справочники жанров и MPA держатся в памяти, проверка не блокирует
+        if (genreId != null && !genreService.exists(genreId)) {
+            return Flux.error(new NotFoundException("Такого жанра не существует"));
+        }
+        if (mpaId != null && !mpaService.exists(mpaId)) {
+            return Flux.error(new NotFoundException("Такого рейтинга не существует"));
+        }
+
+        return filmStorage.getPopularFilms(count, genreId, year, mpaId);
+    }
+}
@@ -5,51 +5,108 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidateException;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.TableVersions;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.replica.ReplicaRouting;
 
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class GenreService {
     GenreStorage storage;
+    TableVersions versions;
+    private volatile Snapshot snapshot;
 
     @Autowired
-    public GenreService(GenreStorage storage) {
+    public GenreService(GenreStorage storage, TableVersions versions) {
         this.storage = storage;
+        this.versions = versions;
+        reload();
     }
 
     public List<Genre> getAll() {
-        return storage.getAll();
+        return snapshot.all;
     }
 
     public Genre getGenreById(int id) {
-        return storage.getGenreById(id)
+        return Optional.ofNullable(snapshot.byId.get(id))
                 .orElseThrow(() -> new NotFoundException("Такого жанра не существует"));
     }
 
-    public Genre createGenre(Genre genre) {
+    /**
+     * ETag списка из текущего снимка: версия таблицы берётся до его загрузки, так что снимок не старше её.
+     */
+    public String getEtag() {
+        return snapshot.etag;
+    }
+
+    public boolean exists(int id) {
+        return snapshot.byId.containsKey(id);
+    }
+
+    public synchronized Genre createGenre(Genre genre) {
         if (genre.getName().isBlank()) {
             throw new ValidateException("Имя не может быть пустым");
         }
-        return storage.createGenre(genre);
+        try {
+            return storage.createGenre(genre);
+        } finally {
+            reload();
+        }
     }
 
-    public void updateGenre(Genre genre) {
+    public synchronized void updateGenre(Genre genre) {
         if (genre.getName().isBlank()) {
             throw new ValidateException("Имя не может быть пустым");
         }
-        storage.getGenreById(genre.getId())
-                .orElseThrow(() -> new NotFoundException("Такого жанра не существует"));
+        getGenreById(genre.getId());
+
+        try {
+            storage.updateGenre(genre);
+        } finally {
+            reload();
+        }
+    }
 
-        storage.updateGenre(genre);
+    public synchronized void deleteAllGenres() {
+        try {
+            storage.deleteAllGenres();
+        } finally {
+            reload();
+        }
     }
 
-    public void deleteAllGenres() {
-        storage.deleteAllGenres();
+    public synchronized void deleteGenreById(int id) {
+        try {
+            storage.deleteGenreById(id);
+        } finally {
+            reload();
+        }
     }
 
-    public void deleteGenreById(int id) {
-        storage.deleteGenreById(id);
+    private void reload() {
+        String etag = versions.etag(TableVersions.Table.GENRE);
+        // снимок живёт до следующей записи, поэтому читается не с реплики, которая может отставать
+        snapshot = new Snapshot(ReplicaRouting.onPrimary(storage::getAll), etag);
     }
 
+    private static final class Snapshot {
+        final List<Genre> all;
+        final Map<Integer, Genre> byId;
+        final String etag;
+
+        Snapshot(List<Genre> genres, String etag) {
+            this.all = genres.stream()
+                    .sorted(Comparator.comparingInt(Genre::getId))
+                    .collect(Collectors.toUnmodifiableList());
+            this.byId = all.stream()
+                    .collect(Collectors.toMap(Genre::getId, genre -> genre, (a, b) -> a, LinkedHashMap::new));
+            this.etag = etag;
+        }
+    }
 }
@@ -5,53 +5,108 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidateException;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.TableVersions;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.replica.ReplicaRouting;
 
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class MpaService {
-
     MpaStorage storage;
+    TableVersions versions;
+    private volatile Snapshot snapshot;
 
     @Autowired
-    public MpaService(MpaStorage storage) {
+    public MpaService(MpaStorage storage, TableVersions versions) {
         this.storage = storage;
+        this.versions = versions;
+        reload();
     }
 
     public List<Mpa> getAll() {
-        return storage.getAll();
+        return snapshot.all;
     }
 
     public Mpa getMpaById(int id) {
-        return storage.getMpaById(id)
+        return Optional.ofNullable(snapshot.byId.get(id))
                 .orElseThrow(() -> new NotFoundException("Такого рейтинга не существует"));
     }
 
-    public Mpa createMpa(Mpa mpa) {
+    /**
+     * ETag списка из текущего снимка: версия таблицы берётся до его загрузки, так что снимок не старше её.
+     */
+    public String getEtag() {
+        return snapshot.etag;
+    }
+
+    public boolean exists(int id) {
+        return snapshot.byId.containsKey(id);
+    }
+
+    public synchronized Mpa createMpa(Mpa mpa) {
         if (mpa.getName().isBlank()) {
             throw new ValidateException("Имя не может быть пустым");
         }
-        return storage.createMpa(mpa);
+        try {
+            return storage.createMpa(mpa);
+        } finally {
+            reload();
+        }
     }
 
-    public void updateMpa(Mpa mpa) {
+    public synchronized void updateMpa(Mpa mpa) {
         if (mpa.getName().isBlank()) {
             throw new ValidateException("Имя не может быть пустым");
         }
-        storage.getMpaById(mpa.getId())
-                .orElseThrow(() -> new NotFoundException("Такого рейтинга не существует"));
+        getMpaById(mpa.getId());
 
-        storage.updateMpa(mpa);
+        try {
+            storage.updateMpa(mpa);
+        } finally {
+            reload();
+        }
     }
 
-    public void deleteAllMpa() {
-        storage.deleteAllMpa();
+    public synchronized void deleteAllMpa() {
+        try {
+            storage.deleteAllMpa();
+        } finally {
+            reload();
+        }
     }
 
-    public void deleteMpaById(int id) {
-        storage.deleteMpaById(id);
+    public synchronized void deleteMpaById(int id) {
+        try {
+            storage.deleteMpaById(id);
+        } finally {
+            reload();
+        }
     }
 
+    private void reload() {
+        String etag = versions.etag(TableVersions.Table.RATING_MPA);
+        // снимок живёт до следующей записи, поэтому читается не с реплики, которая может отставать
+        snapshot = new Snapshot(ReplicaRouting.onPrimary(storage::getAll), etag);
+    }
 
+    private static final class Snapshot {
+        final List<Mpa> all;
+        final Map<Integer, Mpa> byId;
+        final String etag;
+
+        Snapshot(List<Mpa> ratings, String etag) {
+            this.all = ratings.stream()
+                    .sorted(Comparator.comparingInt(Mpa::getId))
+                    .collect(Collectors.toUnmodifiableList());
+            this.byId = all.stream()
+                    .collect(Collectors.toMap(Mpa::getId, mpa -> mpa, (a, b) -> a, LinkedHashMap::new));
+            this.etag = etag;
+        }
+    }
 }
@@ -3,25 +3,44 @@ package ru.yandex.practicum.filmorate.service.user;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidateException;
+import ru.yandex.practicum.filmorate.model.BulkImportItem;
+import ru.yandex.practicum.filmorate.model.BulkImportReport;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.ValidationService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class UserService {
+
+    private static final int USERS_CHUNK_SIZE = 5000;
+    private static final int FRIENDSHIPS_CHUNK_SIZE = 10000;
+
     final UserStorage storage;
+    final FilmStorage filmStorage;
     final ValidationService validationService;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage storage, ValidationService validationService) {
+    public UserService(@Qualifier("cachedUserStorage") UserStorage storage,
+                       FilmStorage filmStorage,
+                       ValidationService validationService) {
         this.storage = storage;
+        this.filmStorage = filmStorage;
         this.validationService = validationService;
     }
 
@@ -29,6 +48,14 @@ public class UserService {
         return storage.getAllUsers();
     }
 
+    public void streamAll(Consumer<User> consumer) {
+        storage.streamUsers(consumer);
+    }
+
+    public List<User> getPage(int after, int limit) {
+        return storage.getUsers(after, limit);
+    }
+
     public User getUserById(int id) {
         return storage.getUserById(id)
                 .orElseThrow(() -> new NotFoundException("Такого пользователя не существует"));
@@ -44,6 +71,93 @@ public class UserService {
         return storage.createUser(user);
     }
 
+    public BulkImportReport importUsers(Iterator<User> users) {
+        long start = System.nanoTime();
+        Set<String> emails = new HashSet<>();
+        Set<String> logins = new HashSet<>();
+        storage.streamUsers(user -> {
+            emails.add(user.getEmail());
+            logins.add(user.getLogin());
+        });
+
+        List<BulkImportItem> items = new ArrayList<>();
+        List<User> chunk = new ArrayList<>();
+        List<Integer> chunkIndexes = new ArrayList<>();
+        int index = 0;
+        while (users.hasNext()) {
+            int current = index++;
+            try {
+                User user = users.next();
+                validationService.validateCreateUser(user);
+                if (emails.contains(user.getEmail())) {
+                    throw new ValidateException("Пользователь с такой почтой уже существует");
+                }
+                if (logins.contains(user.getLogin())) {
+                    throw new ValidateException("Пользователь с таким логином уже существует");
+                }
+                emails.add(user.getEmail());
+                logins.add(user.getLogin());
+
+                if (user.getName() == null || user.getName().isBlank()) {
+                    user.setName(user.getLogin());
+                }
+                chunk.add(user);
+                chunkIndexes.add(current);
+            } catch (RuntimeException e) {
+                items.add(BulkImportItem.failed(current, e.getMessage()));
+            }
+
+            if (chunk.size() == USERS_CHUNK_SIZE) {
+                saveUsersChunk(chunk, chunkIndexes, items, emails, logins);
+            }
+        }
+        saveUsersChunk(chunk, chunkIndexes, items, emails, logins);
+
+        BulkImportReport report = new BulkImportReport(index, items, System.nanoTime() - start);
+        log.info("Импортировано пользователей: {}, отклонено: {}, скорость {} пользователей/с",
+                report.getImported(), report.getFailed(), report.getItemsPerSecond());
+        return report;
+    }
+
+    public BulkImportReport importFriendships(Iterator<Friendship> friendships) {
+        long start = System.nanoTime();
+        BitSet userIds = new BitSet();
+        storage.streamUsers(user -> userIds.set(user.getId()));
+
+        List<BulkImportItem> failures = new ArrayList<>();
+        int skipped = 0;
+        List<Friendship> chunk = new ArrayList<>();
+        List<Integer> chunkIndexes = new ArrayList<>();
+        int index = 0;
+        while (friendships.hasNext()) {
+            int current = index++;
+            try {
+                Friendship friendship = friendships.next();
+                if (friendship.getUserId() == friendship.getFriendId()) {
+                    throw new ValidateException("Пользователь не может дружить сам с собой");
+                }
+                if (friendship.getUserId() <= 0 || !userIds.get(friendship.getUserId())
+                        || friendship.getFriendId() <= 0 || !userIds.get(friendship.getFriendId())) {
+                    throw new NotFoundException("Такого пользователя не существует");
+                }
+                chunk.add(friendship);
+                chunkIndexes.add(current);
+            } catch (RuntimeException e) {
+                failures.add(BulkImportItem.failed(current, e.getMessage()));
+            }
+
+            if (chunk.size() == FRIENDSHIPS_CHUNK_SIZE) {
+                skipped += saveFriendshipsChunk(chunk, chunkIndexes, failures);
+            }
+        }
+        skipped += saveFriendshipsChunk(chunk, chunkIndexes, failures);
+
+        BulkImportReport report = new BulkImportReport(index, skipped, failures, System.nanoTime() - start);
+        log.info("Импортировано дружб: {}, уже существовало: {}, отклонено: {}, скорость {} связей/с",
+                report.getImported(), report.getSkipped(), report.getFailed(), report.getItemsPerSecond());
+        return report;
+    }
+
     public void updateUser(User user) {
         validationService.validateUpdateUser(user);
         int userId = user.getId();
@@ -58,10 +172,12 @@ public class UserService {
     }
 
     public void deleteAll() {
+        filmStorage.deleteAllLikes();
         storage.deleteAllUsers();
     }
 
     public void deleteUserById(int id) {
+        filmStorage.deleteLikesByUser(id);
         storage.deleteUser(id);
     }
 
@@ -88,16 +204,68 @@ public class UserService {
         storage.getUserById(id)
                 .orElseThrow(() -> new NotFoundException("Такого пользователя не существует"));
 
-        List<Integer> userFriendsIds = storage.getUserFriends(id);
-        if (userFriendsIds == null) {
-            return new ArrayList<>();
+        return storage.getFriends(id, 0, Integer.MAX_VALUE);
+    }
+
+    public List<User> getUserFriends(int id, int after, int limit) {
+        storage.getUserById(id)
+                .orElseThrow(() -> new NotFoundException("Такого пользователя не существует"));
+
+        return storage.getFriends(id, after, limit);
+    }
+
+    public List<Integer> getUserFriendIds(int id, int after, int limit) {
+        storage.getUserById(id)
+                .orElseThrow(() -> new NotFoundException("Такого пользователя не существует"));
+
+        return storage.getUserFriends(id, after, limit);
+    }
+
+    private void saveUsersChunk(List<User> chunk, List<Integer> chunkIndexes, List<BulkImportItem> items,
+                                Set<String> emails, Set<String> logins) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            storage.createUsers(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                items.add(BulkImportItem.imported(chunkIndexes.get(i), chunk.get(i).getId()));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Не удалось сохранить пачку из {} пользователей: {}", chunk.size(), e.getMessage());
+            for (int index : chunkIndexes) {
+                items.add(BulkImportItem.failed(index, "Ошибка записи в базу"));
+            }
+            // пользователи пачки не сохранились, их почту и логин можно занять дальше в файле
+            for (User user : chunk) {
+                emails.remove(user.getEmail());
+                logins.remove(user.getLogin());
+            }
         }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
 
-        return userFriendsIds.stream()
-                .map(storage::getUserById)
-                .map(mayBeUser -> mayBeUser
-                        .orElseThrow(() -> new NotFoundException("Такого пользователя не существует")))
-                .collect(Collectors.toList());
+    /**
+     * @return сколько связей пачки уже было в базе
+     */
+    private int saveFriendshipsChunk(List<Friendship> chunk, List<Integer> chunkIndexes,
+                                     List<BulkImportItem> failures) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        int skipped = 0;
+        try {
+            skipped = chunk.size() - storage.addFriends(chunk);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось сохранить пачку из {} дружб: {}", chunk.size(), e.getMessage());
+            for (int index : chunkIndexes) {
+                failures.add(BulkImportItem.failed(index, "Ошибка записи в базу"));
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+        return skipped;
     }
 
     public List<User> getMutualFriends(int id, int friendId) {
@@ -109,4 +277,18 @@ public class UserService {
         return storage.getMutualFriends(user, friend);
 
     }
+
+    public List<User> getSuggestions(int id, int limit) {
+        storage.getUserById(id)
+                .orElseThrow(() -> new NotFoundException("Такого пользователя не существует"));
+
+        return storage.getUsersByIds(storage.getFriendSuggestions(id, limit));
+    }
+
+    public List<Film> getRecommendations(int id, int limit) {
+        storage.getUserById(id)
+                .orElseThrow(() -> new NotFoundException("Такого пользователя не существует"));
+
+        return filmStorage.getRecommendedFilms(id, limit);
+    }
 }
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Кэш сущностей по id, который загружает промахи в вызывающем потоке вне блокировок кэша.
+ * Синхронный {@link Cache#get} выполняет загрузку внутри {@code ConcurrentHashMap.compute}, и виртуальный поток,
+ * ждущий там соединения с базой, держит свой поток-носитель. Здесь в карту кладётся только незавершённый future:
+ * параллельные запросы того же id ждут его, а {@code invalidate} во время загрузки выбрасывает её результат.
+ */
+public class EntityCache<V> {
+
+    private final AsyncCache<Integer, Optional<V>> cache;
+    private final Cache<Integer, Optional<V>> view;
+
+    EntityCache(AsyncCache<Integer, Optional<V>> cache) {
+        this.cache = cache;
+        this.view = cache.synchronous();
+    }
+
+    public Optional<V> get(int id, Function<Integer, Optional<V>> loader) {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Optional<V>>[] created = new CompletableFuture[1];
+        CompletableFuture<Optional<V>> future = cache.get(id, (key, executor) -> created[0] = new CompletableFuture<>());
+        if (future == created[0]) {
+            try {
+                future.complete(loader.apply(id));
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Пакетная загрузка и так выполняется вне блокировок, одним вызовом {@code loader} на все отсутствующие id.
+     */
+    public Map<Integer, Optional<V>> getAll(Iterable<Integer> ids,
+                                            Function<Iterable<? extends Integer>, Map<Integer, Optional<V>>> loader) {
+        return view.getAll(ids, loader);
+    }
+
+    public void invalidate(int id) {
+        view.invalidate(id);
+    }
+
+    public void invalidateAll(Iterable<Integer> ids) {
+        view.invalidateAll(ids);
+    }
+
+    public void invalidateAll() {
+        view.invalidateAll();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Component
+public class EntityCacheBuilder {
+
+    private final MeterRegistry meterRegistry;
+    private final long maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    @Autowired
+    public EntityCacheBuilder(MeterRegistry meterRegistry,
+                              @Value("${filmorate.cache.max-size}") long maxSize,
+                              @Value("${filmorate.cache.ttl}") Duration ttl,
+                              @Value("${filmorate.cache.negative-ttl}") Duration negativeTtl) {
+        this.meterRegistry = meterRegistry;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+    }
+
+    public <V> EntityCache<V> build(String name) {
+        AsyncCache<Integer, Optional<V>> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Integer, Optional<V>>() {
+                    @Override
+                    public long expireAfterCreate(Integer key, Optional<V> value, long currentTime) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer key, Optional<V> value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer key, Optional<V> value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+
+        return new EntityCache<>(CaffeineCacheMetrics.monitor(meterRegistry, cache, name));
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Метод хранилища пишет в перечисленные таблицы, включая каскадные изменения, и после него их версии
+ * в {@link TableVersions} увеличиваются.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ModifiesTables {
+
+    TableVersions.Table[] value();
+}
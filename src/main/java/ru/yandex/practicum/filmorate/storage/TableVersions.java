@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчики версий таблиц для ETag. Хранилища увеличивают их после каждой записи ({@link ModifiesTables}),
+ * а внутри транзакции только после её завершения: иначе читатель успел бы получить новую версию вместе со старыми
+ * данными и держал бы их в кэше до следующей записи. Эпоха отличает ETag разных запусков приложения.
+ */
+@Component
+public class TableVersions {
+
+    public enum Table {
+        FILMS, FILM_GENRE, LIKES, GENRE, RATING_MPA
+    }
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLongArray versions = new AtomicLongArray(Table.values().length);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void bump(Table... tables) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    increment(tables);
+                }
+            });
+            return;
+        }
+        increment(tables);
+    }
+
+    /**
+     * Вызывает {@code listener} после каждого увеличения версии любой из таблиц: так кэши, собранные из нескольких
+     * таблиц, сбрасываются и при записи в чужие для них хранилища.
+     */
+    public void onChange(Runnable listener, Table... tables) {
+        listeners.add(new Listener(EnumSet.of(tables[0], tables), listener));
+    }
+
+    public long get(Table table) {
+        return versions.get(table.ordinal());
+    }
+
+    /**
+     * Сильный ETag данных из перечисленных таблиц. Сумма счётчиков растёт при записи в любую из них.
+     */
+    public String etag(Table... tables) {
+        long sum = 0;
+        for (Table table : tables) {
+            sum += get(table);
+        }
+        return "\"" + epoch + "-" + sum + "\"";
+    }
+
+    private void increment(Table[] tables) {
+        for (Table table : tables) {
+            versions.incrementAndGet(table.ordinal());
+        }
+        for (Listener listener : listeners) {
+            for (Table table : tables) {
+                if (listener.tables.contains(table)) {
+                    listener.action.run();
+                    break;
+                }
+            }
+        }
+    }
+
+    private static final class Listener {
+        final Set<Table> tables;
+        final Runnable action;
+
+        Listener(Set<Table> tables, Runnable action) {
+            this.tables = tables;
+            this.action = action;
+        }
+    }
+}
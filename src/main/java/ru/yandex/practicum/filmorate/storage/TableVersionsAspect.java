@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Увеличивает версии таблиц после {@link ModifiesTables}-метода, в том числе упавшего: без транзакции
+ * часть его запросов могла успеть записаться.
+ */
+@Aspect
+@Component
+public class TableVersionsAspect {
+
+    private final TableVersions versions;
+
+    @Autowired
+    public TableVersionsAspect(TableVersions versions) {
+        this.versions = versions;
+    }
+
+    @Around("@annotation(modifiesTables)")
+    public Object bump(ProceedingJoinPoint joinPoint, ModifiesTables modifiesTables) throws Throwable {
+        try {
+            return joinPoint.proceed();
+        } finally {
+            versions.bump(modifiesTables.value());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.EntityCacheBuilder;
+import ru.yandex.practicum.filmorate.storage.TableVersions;
+import ru.yandex.practicum.filmorate.storage.TableVersions.Table;
+import ru.yandex.practicum.filmorate.storage.replica.ReplicaRouting;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Primary
+@Repository("cachedFilmStorage")
+public class CachedFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final EntityCache<Film> films;
+
+    @Autowired
+    public CachedFilmStorage(@Qualifier("filmDbStorage") FilmStorage delegate, EntityCacheBuilder cacheBuilder,
+                             TableVersions versions) {
+        this.delegate = delegate;
+        this.films = cacheBuilder.build("films");
+        // в фильме лежат названия жанров и рейтинга, а их удаление меняет фильмы каскадом в обход этого хранилища
+        versions.onChange(films::invalidateAll, Table.GENRE, Table.RATING_MPA);
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        Film created = delegate.createFilm(film);
+        films.invalidate(created.getId());
+        return created;
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> newFilms) {
+        List<Film> created = delegate.createFilms(newFilms);
+        films.invalidateAll(created.stream().map(Film::getId).collect(Collectors.toList()));
+        return created;
+    }
+
+    @Override
+    public void updateFilm(Film film) {
+        try {
+            delegate.updateFilm(film);
+        } finally {
+            films.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public void deleteFilm(int id) {
+        try {
+            delegate.deleteFilm(id);
+        } finally {
+            films.invalidate(id);
+        }
+    }
+
+    @Override
+    public void deleteAllFilms() {
+        try {
+            delegate.deleteAllFilms();
+        } finally {
+            films.invalidateAll();
+        }
+    }
+
+    @Override
+    public List<Film> getFilms() {
+        return delegate.getFilms();
+    }
+
+    @Override
+    public List<Film> getFilms(int after, int limit) {
+        return delegate.getFilms(after, limit);
+    }
+
+    @Override
+    public void streamFilms(Consumer<Film> consumer) {
+        delegate.streamFilms(consumer);
+    }
+
+    @Override
+    public Optional<Film> getFilmById(int id) {
+        // загруженное значение живёт в кэше до TTL, поэтому читаем его не с реплики, которая может отставать
+        return films.get(id, key -> ReplicaRouting.onPrimary(() -> delegate.getFilmById(key)));
+    }
+
+    @Override
+    public void addLike(Film film, User user) {
+        try {
+            delegate.addLike(film, user);
+        } finally {
+            films.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public void deleteLike(Film film, User user) {
+        try {
+            delegate.deleteLike(film, user);
+        } finally {
+            films.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public void applyLikes(List<LikeEvent> events) {
+        try {
+            delegate.applyLikes(events);
+        } finally {
+            films.invalidateAll(events.stream().map(LikeEvent::getFilmId).collect(Collectors.toSet()));
+        }
+    }
+
+    @Override
+    public void deleteLikesByUser(int userId) {
+        try {
+            delegate.deleteLikesByUser(userId);
+        } finally {
+            films.invalidateAll();
+        }
+    }
+
+    @Override
+    public void deleteAllLikes() {
+        try {
+            delegate.deleteAllLikes();
+        } finally {
+            films.invalidateAll();
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId) {
+        return delegate.getPopularFilms(count, genreId, year, mpaId);
+    }
+
+    @Override
+    public List<Film> getRecommendedFilms(int userId, int limit) {
+        return delegate.getRecommendedFilms(userId, limit);
+    }
+
+    @Override
+    public List<Film> getSimilarFilms(int filmId, int limit) {
+        return delegate.getSimilarFilms(filmId, limit);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int limit) {
+        return delegate.searchFilms(query, limit);
+    }
+}
@@ -1,29 +1,82 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.ModifiesTables;
+import ru.yandex.practicum.filmorate.storage.TableVersions.Table;
+import ru.yandex.practicum.filmorate.storage.replica.ReadOnlyQuery;
 
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository("filmDbStorage")
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
 
+    private static final int GENRES_BATCH_SIZE = 500;
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final NamedParameterJdbcOperations operations;
+    private final FilmPopularityIndex popularityIndex;
+    private final LikeIndex likeIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmSearchIndex searchIndex;
+
+    @PostConstruct
+    public void rebuildPopularityIndex() {
+        popularityIndex.rebuild(loadLikeCounts(), loadFilmAttributes());
+    }
+
+    @PostConstruct
+    public void rebuildLikeIndex() {
+        Map<Integer, RoaringBitmap> likers = new HashMap<>();
+        operations.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT film_id, viewer_id FROM likes",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            likers.computeIfAbsent(rs.getInt("film_id"), filmId -> new RoaringBitmap())
+                    .add(rs.getInt("viewer_id"));
+        });
+        likeIndex.rebuild(likers);
+        similarityIndex.rebuild(likers);
+    }
+
+    @PostConstruct
+    public void rebuildSearchIndex() {
+        searchIndex.clear();
+        operations.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT film_id, film_name, description FROM films",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            searchIndex.index(rs.getInt("film_id"), rs.getString("film_name"), rs.getString("description"));
+        });
+    }
 
     @Override
+    @ModifiesTables({Table.FILMS, Table.FILM_GENRE})
     public Film createFilm(Film film) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
@@ -46,11 +99,70 @@ public class FilmDbStorage implements FilmStorage {
         film.setId(filmId);
 
         saveGenres(film);
+        popularityIndex.addFilm(filmId, FilmPopularityIndex.Attributes.of(film));
+        searchIndex.index(filmId, film.getName(), film.getDescription());
 
         return film;
     }
 
     @Override
+    @Transactional
+    @ModifiesTables({Table.FILMS, Table.FILM_GENRE})
+    public List<Film> createFilms(List<Film> films) {
+        String sqlQuery = "INSERT INTO films " +
+                "(film_name, description, release_date, duration_in_minutes, likes_count, rating_mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        operations.getJdbcOperations().execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sqlQuery, new String[]{"film_id"})) {
+                for (Film film : films) {
+                    ps.setString(1, film.getName());
+                    ps.setString(2, film.getDescription());
+                    ps.setObject(3, film.getReleaseDate());
+                    ps.setInt(4, film.getDuration());
+                    ps.setInt(5, film.getRate());
+                    ps.setInt(6, film.getMpa().getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next()) {
+                        films.get(i++).setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+
+        List<SqlParameterSource> genreParams = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getGenres() == null) {
+                continue;
+            }
+            film.getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .forEach(genreId -> genreParams.add(new MapSqlParameterSource("film_id", film.getId())
+                            .addValue("genre_id", genreId)));
+        }
+        operations.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (:film_id, :genre_id)",
+                genreParams.toArray(new SqlParameterSource[0]));
+
+        AfterCommit.run(() -> indexFilms(films));
+        return films;
+    }
+
+    private void indexFilms(List<Film> films) {
+        for (Film film : films) {
+            popularityIndex.addFilm(film.getId(), FilmPopularityIndex.Attributes.of(film));
+            searchIndex.index(film.getId(), film.getName(), film.getDescription());
+        }
+    }
+
+    @Override
+    @ModifiesTables({Table.FILMS, Table.FILM_GENRE})
     public void updateFilm(Film film) {
         String sqlQuery = "UPDATE films SET film_name = :name, description = :description, release_date = :release_date, " +
                 "duration_in_minutes = :duration, likes_count = :rate, rating_mpa_id = :mpaId " +
@@ -74,9 +186,12 @@ public class FilmDbStorage implements FilmStorage {
         operations.update(sqlQueryForFilmGenres, filmId);
 
         saveGenres(film);
+        popularityIndex.updateFilm(film.getId(), FilmPopularityIndex.Attributes.of(film));
+        searchIndex.index(film.getId(), film.getName(), film.getDescription());
     }
 
     @Override
+    @ModifiesTables({Table.FILMS, Table.FILM_GENRE, Table.LIKES})
     public void deleteFilm(int id) {
         String sqlQueryForFilmGenres = "DELETE FROM film_genre WHERE film_id = :id";
         SqlParameterSource filmId = new MapSqlParameterSource("id", id);
@@ -85,17 +200,27 @@ public class FilmDbStorage implements FilmStorage {
         String sqlQuery = "DELETE FROM films WHERE film_id = :id";
         operations.update(sqlQuery, filmId);
 
+        popularityIndex.removeFilm(id);
+        likeIndex.removeFilm(id);
+        similarityIndex.removeFilm(id);
+        searchIndex.removeFilm(id);
     }
 
     @Override
+    @ModifiesTables({Table.FILMS, Table.FILM_GENRE, Table.LIKES})
     public void deleteAllFilms() {
         operations.getJdbcOperations().update("DELETE FROM film_genre");
 
         operations.getJdbcOperations().update("DELETE FROM films");
 
+        popularityIndex.clear();
+        likeIndex.clear();
+        similarityIndex.clear();
+        searchIndex.clear();
     }
 
     @Override
+    @ReadOnlyQuery
     public List<Film> getFilms() {
         String sqlQuery = "SELECT * " +
                 "FROM films AS f " +
@@ -109,6 +234,73 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    @ReadOnlyQuery
+    public List<Film> getFilms(int after, int limit) {
+        String sqlQuery = "SELECT * " +
+                "FROM films AS f " +
+                "JOIN ratingMPA AS r ON f.rating_MPA_id = r.id " +
+                "WHERE f.film_id > :after " +
+                "ORDER BY f.film_id " +
+                "LIMIT :limit";
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("after", after)
+                .addValue("limit", limit);
+
+        List<Film> films = operations.query(sqlQuery, params, (rs, rowNum) -> makeFilm(rs));
+
+        loadGenres(films);
+
+        return films;
+    }
+
+    @Override
+    @ReadOnlyQuery
+    public void streamFilms(Consumer<Film> consumer) {
+        String sqlQuery = "SELECT f.*, r.rating_name, g.id AS genre_id, g.name AS genre_name " +
+                "FROM films AS f " +
+                "JOIN ratingMPA AS r ON f.rating_MPA_id = r.id " +
+                "LEFT JOIN film_genre AS fg ON fg.film_id = f.film_id " +
+                "LEFT JOIN genre AS g ON fg.genre_id = g.id " +
+                // только по id фильма: такой порядок H2 берёт из первичного ключа и отдаёт строки сразу,
+                // а с g.id сортирует всё соединение до первой строки; жанры упорядочиваются при сборке фильма
+                "ORDER BY f.film_id";
+
+        Film[] current = new Film[1];
+        List<Genre> genres = new ArrayList<>();
+        operations.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement(sqlQuery,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            int filmId = rs.getInt("film_id");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) {
+                    consumer.accept(withSortedGenres(current[0], genres));
+                }
+                current[0] = makeFilm(rs);
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                genres.add(new Genre(genreId, rs.getString("genre_name")));
+            }
+        });
+
+        if (current[0] != null) {
+            consumer.accept(withSortedGenres(current[0], genres));
+        }
+    }
+
+    private static Film withSortedGenres(Film film, List<Genre> genres) {
+        genres.sort(Comparator.comparingInt(Genre::getId));
+        film.getGenres().addAll(genres);
+        genres.clear();
+        return film;
+    }
+
+    @Override
+    @ReadOnlyQuery
     public Optional<Film> getFilmById(int id) {
 
         String sqlQuery = "SELECT * " +
@@ -124,22 +316,13 @@ public class FilmDbStorage implements FilmStorage {
 
         Film film = films.get(0);
 
-        String sqlQueryForGenres = "SELECT fg.film_id, g.id, g.name FROM film_genre AS fg " +
-                "JOIN genre AS g ON fg.genre_id = g.id " +
-                "WHERE fg.film_id = :filmId;";
-
-
-        SqlParameterSource needId = new MapSqlParameterSource("filmId", id);
-
-        List<Genre> filmGenres = operations.query(sqlQueryForGenres, needId, (rs, rowNum) -> makeGenre(rs));
-        filmGenres.sort(Comparator.comparing(Genre::getId));
-
-        film.setGenres(new LinkedHashSet<>(filmGenres));
+        loadGenres(films);
 
         return Optional.of(film);
     }
 
     @Override
+    @ModifiesTables({Table.LIKES, Table.FILMS})
     public void addLike(Film film, User user) {
         String sqlQueryForLikes = "MERGE INTO likes AS l USING " +
                 "(SELECT CAST(:film_id AS int) AS film_id, CAST(:user_id AS int) AS viewer_id) AS ls " +
@@ -149,55 +332,241 @@ public class FilmDbStorage implements FilmStorage {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("film_id", film.getId())
                 .addValue("user_id", user.getId());
-        operations.update(sqlQueryForLikes, params);
+        int inserted = operations.update(sqlQueryForLikes, params);
 
         String sqlQuery = "UPDATE films SET likes_count = (SELECT COUNT(viewer_id) FROM likes WHERE film_id = ?)" +
                 "WHERE film_id = ?";
         int filmId = film.getId();
         operations.getJdbcOperations().update(sqlQuery, filmId, filmId);
 
-        System.out.println();
-
-
+        popularityIndex.changeLikes(filmId, inserted);
+        if (inserted > 0) {
+            likeAdded(filmId, user.getId());
+        }
     }
 
     @Override
+    @ModifiesTables({Table.LIKES, Table.FILMS})
     public void deleteLike(Film film, User user) {
         String sqlQueryForLikes = "DELETE FROM likes WHERE film_id = ? AND viewer_id = ?";
-        operations.getJdbcOperations().update(sqlQueryForLikes, film.getId(), user.getId());
+        int deleted = operations.getJdbcOperations().update(sqlQueryForLikes, film.getId(), user.getId());
 
         String sqlQuery = "UPDATE films SET likes_count = (SELECT COUNT(viewer_id) FROM likes WHERE film_id = ?)" +
                 "WHERE film_id = ?";
         int filmId = film.getId();
         operations.getJdbcOperations().update(sqlQuery, filmId, filmId);
 
+        popularityIndex.changeLikes(filmId, -deleted);
+        if (deleted > 0) {
+            likeRemoved(filmId, user.getId());
+        }
+    }
 
+    @Override
+    @Transactional
+    @ModifiesTables({Table.LIKES, Table.FILMS})
+    public void applyLikes(List<LikeEvent> events) {
+        List<SqlParameterSource> added = new ArrayList<>();
+        List<SqlParameterSource> removed = new ArrayList<>();
+        for (LikeEvent event : events) {
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            params.addValue("film_id", event.getFilmId())
+                    .addValue("user_id", event.getUserId());
+            (event.isLiked() ? added : removed).add(params);
+        }
+
+        String sqlQueryForAdded = "MERGE INTO likes AS l USING " +
+                "(SELECT CAST(:film_id AS int) AS film_id, CAST(:user_id AS int) AS viewer_id) AS ls " +
+                "ON l.film_id = ls.film_id AND l.viewer_id = ls.viewer_id " +
+                "WHEN NOT MATCHED THEN INSERT (film_id, viewer_id) VALUES (:film_id, :user_id)";
+        String sqlQueryForRemoved = "DELETE FROM likes WHERE film_id = :film_id AND viewer_id = :user_id";
+
+        int[] addedRows = operations.batchUpdate(sqlQueryForAdded, added.toArray(new SqlParameterSource[0]));
+        int[] removedRows = operations.batchUpdate(sqlQueryForRemoved, removed.toArray(new SqlParameterSource[0]));
+
+        Map<Integer, Integer> deltas = new HashMap<>();
+        List<LikeEvent> applied = new ArrayList<>();
+        collectDeltas(added, addedRows, true, deltas, applied);
+        collectDeltas(removed, removedRows, false, deltas, applied);
+        deltas.values().removeIf(delta -> delta == 0);
+
+        if (!deltas.isEmpty()) {
+            SqlParameterSource[] counts = deltas.entrySet().stream()
+                    .map(entry -> new MapSqlParameterSource("id", entry.getKey())
+                            .addValue("delta", entry.getValue()))
+                    .toArray(SqlParameterSource[]::new);
+            operations.batchUpdate("UPDATE films SET likes_count = likes_count + :delta WHERE film_id = :id", counts);
+        }
+
+        // до коммита читатели ещё видят старые лайки в базе, индексы не должны их обгонять
+        AfterCommit.run(() -> {
+            for (LikeEvent event : applied) {
+                if (event.isLiked()) {
+                    likeAdded(event.getFilmId(), event.getUserId());
+                } else {
+                    likeRemoved(event.getFilmId(), event.getUserId());
+                }
+            }
+            deltas.forEach(popularityIndex::changeLikes);
+        });
     }
 
     @Override
+    @ModifiesTables({Table.LIKES, Table.FILMS})
+    public void deleteLikesByUser(int userId) {
+        String sqlQueryForFilms = "SELECT film_id FROM likes WHERE viewer_id = :userId";
+        SqlParameterSource needId = new MapSqlParameterSource("userId", userId);
+        List<Integer> filmIds = operations.queryForList(sqlQueryForFilms, needId, Integer.class);
+
+        if (filmIds.isEmpty()) {
+            return;
+        }
+
+        String sqlQueryForLikes = "DELETE FROM likes WHERE viewer_id = :userId";
+        operations.update(sqlQueryForLikes, needId);
+
+        String sqlQuery = "UPDATE films SET likes_count = " +
+                "(SELECT COUNT(viewer_id) FROM likes WHERE likes.film_id = films.film_id) " +
+                "WHERE film_id IN (:ids)";
+        operations.update(sqlQuery, new MapSqlParameterSource("ids", filmIds));
+
+        for (int filmId : filmIds) {
+            popularityIndex.changeLikes(filmId, -1);
+        }
+        for (int filmId : likeIndex.removeUser(userId)) {
+            similarityIndex.recompute(filmId);
+        }
+    }
+
+    @Override
+    @ModifiesTables({Table.LIKES, Table.FILMS})
+    public void deleteAllLikes() {
+        operations.getJdbcOperations().update("DELETE FROM likes");
+
+        operations.getJdbcOperations().update("UPDATE films SET likes_count = 0");
+
+        popularityIndex.resetLikes();
+        likeIndex.clear();
+        similarityIndex.clear();
+    }
+
+    @Override
+    @ReadOnlyQuery
     public List<Film> getPopularFilms(int count) {
+        return getFilmsByIds(popularityIndex.top(count));
+    }
 
-        String sqlQuery = "SELECT f.film_id, " +
-                "f.film_name, " +
-                "f.description, " +
-                "f.release_date, " +
-                "f.duration_in_minutes, " +
-                "f.likes_count, " +
-                "f.rating_MPA_id, " +
-                "r.rating_name, " +
-                "COUNT(l.viewer_id) AS liked_users " +
+    @Override
+    @ReadOnlyQuery
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId) {
+        return getFilmsByIds(popularityIndex.top(count, genreId, year, mpaId));
+    }
+
+    @Override
+    @ReadOnlyQuery
+    public List<Film> getRecommendedFilms(int userId, int limit) {
+        return getFilmsByIds(likeIndex.recommend(userId, limit));
+    }
+
+    @Override
+    @ReadOnlyQuery
+    public List<Film> getSimilarFilms(int filmId, int limit) {
+        return getFilmsByIds(similarityIndex.similar(filmId, limit));
+    }
+
+    @Override
+    @ReadOnlyQuery
+    public List<Film> searchFilms(String query, int limit) {
+        return getFilmsByIds(searchIndex.search(query, limit));
+    }
+
+    Map<Integer, Integer> loadLikeCounts() {
+        String sqlQuery = "SELECT f.film_id, COUNT(l.viewer_id) AS liked_users " +
                 "FROM films AS f " +
-                "JOIN ratingMPA AS r ON f.rating_MPA_id = r.id " +
                 "LEFT JOIN likes AS l ON l.film_id = f.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY liked_users DESC " +
-                "LIMIT :limit";
-        SqlParameterSource limit = new MapSqlParameterSource("limit", count);
-        List<Film> films = operations.query(sqlQuery, limit, (rs, rowNUm) -> makeFilm(rs));
+                "GROUP BY f.film_id";
+
+        Map<Integer, Integer> likes = new HashMap<>();
+        operations.query(sqlQuery, rs -> {
+            likes.put(rs.getInt("film_id"), rs.getInt("liked_users"));
+        });
+        return likes;
+    }
+
+    Map<Integer, FilmPopularityIndex.Attributes> loadFilmAttributes() {
+        Map<Integer, Integer> years = new HashMap<>();
+        Map<Integer, Integer> mpaIds = new HashMap<>();
+        operations.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT film_id, release_date, rating_mpa_id FROM films",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            int filmId = rs.getInt("film_id");
+            years.put(filmId, rs.getDate("release_date").toLocalDate().getYear());
+            mpaIds.put(filmId, rs.getInt("rating_mpa_id"));
+        });
+
+        Map<Integer, List<Integer>> genres = new HashMap<>();
+        operations.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT film_id, genre_id FROM film_genre",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            genres.computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>()).add(rs.getInt("genre_id"));
+        });
+
+        Map<Integer, FilmPopularityIndex.Attributes> attributes = new HashMap<>();
+        years.forEach((filmId, year) -> attributes.put(filmId, new FilmPopularityIndex.Attributes(year,
+                mpaIds.get(filmId),
+                genres.getOrDefault(filmId, List.of()).stream().mapToInt(Integer::intValue).toArray())));
+        return attributes;
+    }
+
+    private List<Film> getFilmsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sqlQuery = "SELECT * " +
+                "FROM films AS f " +
+                "JOIN ratingMPA AS r ON f.rating_MPA_id = r.id " +
+                "WHERE f.film_id IN (:ids)";
+        SqlParameterSource filmIds = new MapSqlParameterSource("ids", ids);
+        List<Film> films = operations.query(sqlQuery, filmIds, (rs, rowNum) -> makeFilm(rs));
 
         loadGenres(films);
 
-        return films;
+        Map<Integer, Film> filmMap = new HashMap<>();
+        for (Film film : films) {
+            filmMap.put(film.getId(), film);
+        }
+        return ids.stream()
+                .map(filmMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private void collectDeltas(List<SqlParameterSource> events, int[] affected, boolean liked,
+                               Map<Integer, Integer> deltas, List<LikeEvent> applied) {
+        for (int i = 0; i < affected.length; i++) {
+            if (affected[i] > 0) {
+                int filmId = (int) events.get(i).getValue("film_id");
+                int userId = (int) events.get(i).getValue("user_id");
+                deltas.merge(filmId, liked ? 1 : -1, Integer::sum);
+                applied.add(new LikeEvent(filmId, userId, liked));
+            }
+        }
+    }
+
+    private void likeAdded(int filmId, int userId) {
+        likeIndex.addLike(filmId, userId);
+        similarityIndex.addLike(filmId, userId);
+    }
+
+    private void likeRemoved(int filmId, int userId) {
+        likeIndex.removeLike(filmId, userId);
+        similarityIndex.recompute(filmId);
     }
 
     private Film makeFilm(ResultSet rs) throws SQLException {
@@ -218,13 +587,6 @@ public class FilmDbStorage implements FilmStorage {
 
     }
 
-    private Genre makeGenre(ResultSet rs) throws SQLException {
-        return Genre.builder()
-                .id(rs.getInt("id"))
-                .name(rs.getString("name"))
-                .build();
-    }
-
     private void saveGenres(Film film) {
 
         if (film.getGenres() == null || film.getGenres().isEmpty()) {
@@ -249,18 +611,27 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     private void loadGenres(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
         Map<Integer, Film> filmMap = new HashMap<>();
         for (Film film : films) {
             filmMap.put(film.getId(), film);
         }
         String sqlQueryForGenres = "SELECT fg.film_id, g.id, g.name FROM film_genre AS fg " +
-                "JOIN genre AS g ON fg.genre_id = g.id ";
-
-        operations.query(sqlQueryForGenres, (rs, rowNum) -> {
-            Film film = filmMap.get(rs.getInt("film_id"));
-            film.getGenres().add(new Genre(rs.getInt("id"), rs.getString("name")));
-
-            return film;
-        });
+                "JOIN genre AS g ON fg.genre_id = g.id " +
+                "WHERE fg.film_id IN (:ids) " +
+                "ORDER BY fg.film_id, g.id";
+
+        List<Integer> filmIds = new ArrayList<>(filmMap.keySet());
+        for (int from = 0; from < filmIds.size(); from += GENRES_BATCH_SIZE) {
+            List<Integer> batch = filmIds.subList(from, Math.min(from + GENRES_BATCH_SIZE, filmIds.size()));
+            SqlParameterSource ids = new MapSqlParameterSource("ids", batch);
+
+            operations.query(sqlQueryForGenres, ids, rs -> {
+                Film film = filmMap.get(rs.getInt("film_id"));
+                film.getGenres().add(new Genre(rs.getInt("id"), rs.getString("name")));
+            });
+        }
     }
 }
\ No newline at end of file
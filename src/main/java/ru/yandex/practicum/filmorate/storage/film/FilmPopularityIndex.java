@@ -0,0 +1,275 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.UnaryOperator;
+
+@Component
+public class FilmPopularityIndex {
+
+    private static final Ranking EMPTY = new Ranking();
+
+    private final Map<Integer, Integer> likesByFilm = new HashMap<>();
+    private final NavigableSet<Long> ranking = new ConcurrentSkipListSet<>();
+    private final Map<Integer, Attributes> attributesByFilm = new ConcurrentHashMap<>();
+    private final Map<Integer, Ranking> rankingByGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, Ranking> rankingByYear = new ConcurrentHashMap<>();
+    private final Map<Integer, Ranking> rankingByMpa = new ConcurrentHashMap<>();
+
+    public synchronized void rebuild(Map<Integer, Integer> likes, Map<Integer, Attributes> attributes) {
+        clear();
+        likes.forEach((filmId, count) -> {
+            likesByFilm.put(filmId, count);
+            ranking.add(key(filmId, count));
+            Attributes filmAttributes = attributes.get(filmId);
+            if (filmAttributes != null) {
+                attributesByFilm.put(filmId, filmAttributes);
+                addToDimensions(filmId, filmAttributes, count);
+            }
+        });
+    }
+
+    public synchronized void addFilm(int filmId, Attributes attributes) {
+        if (likesByFilm.putIfAbsent(filmId, 0) == null) {
+            ranking.add(key(filmId, 0));
+            attributesByFilm.put(filmId, attributes);
+            addToDimensions(filmId, attributes, 0);
+        }
+    }
+
+    public synchronized void updateFilm(int filmId, Attributes attributes) {
+        Integer likes = likesByFilm.get(filmId);
+        if (likes == null) {
+            return;
+        }
+        Attributes previous = attributesByFilm.put(filmId, attributes);
+        addToDimensions(filmId, attributes, likes);
+        if (previous != null) {
+            removeFromDimensions(filmId, previous, likes, attributes);
+        }
+    }
+
+    public synchronized void removeFilm(int filmId) {
+        Integer likes = likesByFilm.remove(filmId);
+        if (likes != null) {
+            ranking.remove(key(filmId, likes));
+            Attributes attributes = attributesByFilm.remove(filmId);
+            if (attributes != null) {
+                removeFromDimensions(filmId, attributes, likes, null);
+            }
+        }
+    }
+
+    /**
+     * Удалённый жанр пропадает у всех фильмов: строки film_genre удаляются каскадом.
+     */
+    public synchronized void removeGenre(int genreId) {
+        reassign(attributes -> attributes.withoutGenre(genreId));
+    }
+
+    public synchronized void removeAllGenres() {
+        reassign(attributes -> attributes.withoutGenre(null));
+    }
+
+    /**
+     * Фильмы удалённого рейтинга остаются без него, как и при перестроении индекса из NULL в rating_MPA_id.
+     */
+    public synchronized void removeMpa(int mpaId) {
+        reassign(attributes -> attributes.mpaId == mpaId ? attributes.withoutMpa() : attributes);
+    }
+
+    public synchronized void removeAllMpa() {
+        reassign(Attributes::withoutMpa);
+    }
+
+    public synchronized void changeLikes(int filmId, int delta) {
+        Integer likes = likesByFilm.get(filmId);
+        if (likes == null || delta == 0) {
+            return;
+        }
+        int newLikes = Math.max(0, likes + delta);
+        likesByFilm.put(filmId, newLikes);
+        move(ranking, filmId, likes, newLikes);
+
+        Attributes attributes = attributesByFilm.get(filmId);
+        if (attributes != null) {
+            for (int genreId : attributes.genreIds) {
+                move(rankingByGenre.get(genreId).keys, filmId, likes, newLikes);
+            }
+            move(rankingByYear.get(attributes.year).keys, filmId, likes, newLikes);
+            move(rankingByMpa.get(attributes.mpaId).keys, filmId, likes, newLikes);
+        }
+    }
+
+    public synchronized void resetLikes() {
+        Map<Integer, Integer> reset = new HashMap<>();
+        likesByFilm.keySet().forEach(filmId -> reset.put(filmId, 0));
+        rebuild(reset, new HashMap<>(attributesByFilm));
+    }
+
+    public synchronized void clear() {
+        likesByFilm.clear();
+        ranking.clear();
+        attributesByFilm.clear();
+        rankingByGenre.clear();
+        rankingByYear.clear();
+        rankingByMpa.clear();
+    }
+
+    public List<Integer> top(int count) {
+        return top(count, null, null, null);
+    }
+
+    /**
+     * Топ по лайкам среди фильмов, подходящих под все заданные фильтры. Обходится рейтинг того из заданных
+     * измерений, в котором меньше всего фильмов, остальные фильтры проверяются по атрибутам фильма.
+     */
+    public List<Integer> top(int count, Integer genreId, Integer year, Integer mpaId) {
+        NavigableSet<Long> source = ranking;
+        if (genreId != null || year != null || mpaId != null) {
+            Ranking narrowest = null;
+            if (year != null) {
+                narrowest = smaller(narrowest, rankingByYear.getOrDefault(year, EMPTY));
+            }
+            if (genreId != null) {
+                narrowest = smaller(narrowest, rankingByGenre.getOrDefault(genreId, EMPTY));
+            }
+            if (mpaId != null) {
+                narrowest = smaller(narrowest, rankingByMpa.getOrDefault(mpaId, EMPTY));
+            }
+            source = narrowest.keys;
+        }
+
+        Set<Integer> filmIds = new LinkedHashSet<>();
+        Iterator<Long> iterator = source.iterator();
+        while (filmIds.size() < count && iterator.hasNext()) {
+            int filmId = filmId(iterator.next());
+            if (source == ranking || matches(attributesByFilm.get(filmId), genreId, year, mpaId)) {
+                filmIds.add(filmId);
+            }
+        }
+        return new ArrayList<>(filmIds);
+    }
+
+    public synchronized Map<Integer, Integer> snapshot() {
+        return new HashMap<>(likesByFilm);
+    }
+
+    private void addToDimensions(int filmId, Attributes attributes, int likes) {
+        long key = key(filmId, likes);
+        for (int genreId : attributes.genreIds) {
+            rankingByGenre.computeIfAbsent(genreId, id -> new Ranking()).add(key);
+        }
+        rankingByYear.computeIfAbsent(attributes.year, id -> new Ranking()).add(key);
+        rankingByMpa.computeIfAbsent(attributes.mpaId, id -> new Ranking()).add(key);
+    }
+
+    private void removeFromDimensions(int filmId, Attributes attributes, int likes, Attributes kept) {
+        long key = key(filmId, likes);
+        for (int genreId : attributes.genreIds) {
+            if (kept == null || Arrays.binarySearch(kept.genreIds, genreId) < 0) {
+                rankingByGenre.get(genreId).remove(key);
+            }
+        }
+        if (kept == null || kept.year != attributes.year) {
+            rankingByYear.get(attributes.year).remove(key);
+        }
+        if (kept == null || kept.mpaId != attributes.mpaId) {
+            rankingByMpa.get(attributes.mpaId).remove(key);
+        }
+    }
+
+    private void reassign(UnaryOperator<Attributes> change) {
+        new HashMap<>(attributesByFilm).forEach((filmId, attributes) -> {
+            Attributes changed = change.apply(attributes);
+            if (changed != attributes) {
+                updateFilm(filmId, changed);
+            }
+        });
+    }
+
+    private static Ranking smaller(Ranking current, Ranking candidate) {
+        return current == null || candidate.size < current.size ? candidate : current;
+    }
+
+    private static void move(NavigableSet<Long> set, int filmId, int likes, int newLikes) {
+        set.add(key(filmId, newLikes));
+        set.remove(key(filmId, likes));
+    }
+
+    private static boolean matches(Attributes attributes, Integer genreId, Integer year, Integer mpaId) {
+        return attributes != null
+                && (genreId == null || Arrays.binarySearch(attributes.genreIds, genreId) >= 0)
+                && (year == null || attributes.year == year)
+                && (mpaId == null || attributes.mpaId == mpaId);
+    }
+
+    private static long key(int filmId, int likes) {
+        return ((long) -likes << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    private static int filmId(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Рейтинг одного значения измерения. Размер ведётся отдельно: у {@link ConcurrentSkipListSet} он считается
+     * обходом. Меняется под блокировкой индекса, читается без неё.
+     */
+    private static final class Ranking {
+        private final NavigableSet<Long> keys = new ConcurrentSkipListSet<>();
+        private volatile int size;
+
+        void add(long key) {
+            if (keys.add(key)) {
+                size++;
+            }
+        }
+
+        void remove(long key) {
+            if (keys.remove(key)) {
+                size--;
+            }
+        }
+    }
+
+    public static final class Attributes {
+        private static final int NO_MPA = 0;
+
+        private final int year;
+        private final int mpaId;
+        private final int[] genreIds;
+
+        public Attributes(int year, int mpaId, int[] genreIds) {
+            this.year = year;
+            this.mpaId = mpaId;
+            this.genreIds = Arrays.stream(genreIds).sorted().distinct().toArray();
+        }
+
+        Attributes withoutGenre(Integer genreId) {
+            if (genreId == null) {
+                return genreIds.length == 0 ? this : new Attributes(year, mpaId, new int[0]);
+            }
+            if (Arrays.binarySearch(genreIds, genreId) < 0) {
+                return this;
+            }
+            return new Attributes(year, mpaId, Arrays.stream(genreIds).filter(id -> id != genreId).toArray());
+        }
+
+        Attributes withoutMpa() {
+            return mpaId == NO_MPA ? this : new Attributes(year, NO_MPA, genreIds);
+        }
+
+        public static Attributes of(Film film) {
+            int[] genreIds = film.getGenres() == null ? new int[0] : film.getGenres().stream()
+                    .mapToInt(Genre::getId)
+                    .toArray();
+            return new Attributes(film.getReleaseDate().getYear(), film.getMpa().getId(), genreIds);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Фильмы читаются одним запросом с жанрами, отсортированным только по id фильма: такой порядок H2 берёт
+ * из первичного ключа и при {@code LAZY_QUERY_EXECUTION} отдаёт строки по мере чтения, без сортировки всей таблицы.
+ * Строки одного фильма идут подряд и собираются в фильм, когда клиент запрашивает следующий, так что выгрузка
+ * не держит в памяти больше одного фильма, а жанры фильма упорядочиваются уже при сборке. Популярные берутся из того же {@link FilmPopularityIndex}, что и в JDBC.
+ * Драйвер r2dbc-h2 выполняет встроенную H2 в вызывающем потоке, поэтому запрос и дочитывание строк
+ * переносятся с event loop Netty на {@link Schedulers#boundedElastic()}.
+ */
+@RequiredArgsConstructor
+public class FilmR2dbcStorage implements ReactiveFilmStorage {
+
+    private final ConnectionFactory connectionFactory;
+    private final FilmPopularityIndex popularityIndex;
+
+    @Override
+    public Flux<Film> getFilms() {
+        return query("films");
+    }
+
+    @Override
+    public Flux<Film> getFilms(int after, int limit) {
+        return query("(SELECT * FROM films WHERE film_id > $1 ORDER BY film_id LIMIT $2)", after, limit);
+    }
+
+    @Override
+    public Mono<Film> getFilmById(int id) {
+        return query("(SELECT * FROM films WHERE film_id = $1)", id).next();
+    }
+
+    @Override
+    public Flux<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId) {
+        return Flux.defer(() -> getFilmsByIds(popularityIndex.top(count, genreId, year, mpaId)));
+    }
+
+    private Flux<Film> getFilmsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        String placeholders = IntStream.rangeClosed(1, ids.size())
+                .mapToObj(index -> "$" + index)
+                .collect(Collectors.joining(", "));
+
+        return query("(SELECT * FROM films WHERE film_id IN (" + placeholders + "))", ids.toArray())
+                .collectMap(Film::getId)
+                .flatMapIterable(films -> orderBy(ids, films));
+    }
+
+    private Flux<Film> query(String films, Object... params) {
+        String sqlQuery = "SELECT f.*, r.rating_name, g.id AS genre_id, g.name AS genre_name " +
+                "FROM " + films + " AS f " +
+                "JOIN ratingMPA AS r ON f.rating_MPA_id = r.id " +
+                "LEFT JOIN film_genre AS fg ON fg.film_id = f.film_id " +
+                "LEFT JOIN genre AS g ON fg.genre_id = g.id " +
+                "ORDER BY f.film_id";
+
+        return Flux.usingWhen(connectionFactory.create(), connection -> {
+                    Statement statement = connection.createStatement(sqlQuery);
+                    for (int i = 0; i < params.length; i++) {
+                        statement.bind(i, params[i]);
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> result.map(FilmR2dbcStorage::makeFilmRow));
+                }, Connection::close)
+                .subscribeOn(Schedulers.boundedElastic())
+                .bufferUntilChanged(row -> row.film.getId())
+                .map(FilmR2dbcStorage::makeFilm);
+    }
+
+    private static List<Film> orderBy(List<Integer> ids, Map<Integer, Film> films) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static Film makeFilm(List<FilmRow> rows) {
+        Film film = rows.get(0).film;
+        rows.stream()
+                .map(row -> row.genre)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingInt(Genre::getId))
+                .forEach(film.getGenres()::add);
+        return film;
+    }
+
+    private static FilmRow makeFilmRow(Row row, RowMetadata metadata) {
+        Mpa mpa = Mpa.builder()
+                .id(row.get("rating_MPA_id", Integer.class))
+                .name(row.get("rating_name", String.class)).build();
+        Integer likes = row.get("likes_count", Integer.class);
+
+        Film film = Film.builder()
+                .id(row.get("film_id", Integer.class))
+                .name(row.get("film_name", String.class))
+                .description(row.get("description", String.class))
+                .releaseDate(row.get("release_date", LocalDateTime.class).toLocalDate())
+                .duration(row.get("duration_in_minutes", Integer.class))
+                .rate(likes == null ? 0 : likes)
+                .genres(new LinkedHashSet<>())
+                .mpa(mpa)
+                .build();
+
+        Integer genreId = row.get("genre_id", Integer.class);
+        return new FilmRow(film, genreId == null ? null : new Genre(genreId, row.get("genre_name", String.class)));
+    }
+
+    private static final class FilmRow {
+        private final Film film;
+        private final Genre genre;
+
+        FilmRow(Film film, Genre genre) {
+            this.film = film;
+            this.genre = genre;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Поиск похожих фильмов по мере Жаккара множеств лайкнувших: MinHash-сигнатура на каждый фильм
+ * и LSH-корзины по полосам сигнатуры. Кандидаты из общих корзин переранжируются по точной мере.
+ */
+@Component
+public class FilmSimilarityIndex {
+
+    static final int HASHES = 64;
+    static final int BANDS = 32;
+    private static final int ROWS = HASHES / BANDS;
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final LikeIndex likeIndex;
+    private final long[] multipliers = new long[HASHES];
+    private final long[] increments = new long[HASHES];
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    private final Map<Long, Set<Integer>> buckets = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public FilmSimilarityIndex(LikeIndex likeIndex) {
+        this.likeIndex = likeIndex;
+        Random random = new Random(SEED);
+        for (int i = 0; i < HASHES; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            increments[i] = random.nextLong();
+        }
+    }
+
+    public void rebuild(Map<Integer, RoaringBitmap> likers) {
+        lock.writeLock().lock();
+        try {
+            signatures.clear();
+            buckets.clear();
+            likers.forEach((filmId, users) -> put(filmId, signature(users)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            int[] current = signatures.get(filmId);
+            int[] updated = current == null ? emptySignature() : current.clone();
+            for (int i = 0; i < HASHES; i++) {
+                updated[i] = Math.min(updated[i], hash(i, userId));
+            }
+            if (!Arrays.equals(current, updated)) {
+                remove(filmId);
+                put(filmId, updated);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Минимум нельзя уменьшить обратно, поэтому после снятия лайка сигнатура пересчитывается по текущим лайкам.
+     * Лайки читаются под блокировкой: {@link #addLike}, успевший между чтением и записью, иначе был бы затёрт.
+     */
+    public void recompute(int filmId) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap users = likeIndex.likers(filmId);
+            remove(filmId);
+            if (!users.isEmpty()) {
+                put(filmId, signature(users));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            remove(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            signatures.clear();
+            buckets.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> similar(int filmId, int limit) {
+        int[] candidates;
+        lock.readLock().lock();
+        try {
+            int[] signature = signatures.get(filmId);
+            if (signature == null) {
+                return new ArrayList<>();
+            }
+            Set<Integer> found = new HashSet<>();
+            for (int band = 0; band < BANDS; band++) {
+                found.addAll(buckets.getOrDefault(bucketKey(signature, band), Set.of()));
+            }
+            found.remove(filmId);
+            candidates = found.stream().mapToInt(Integer::intValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rank(filmId, candidates, limit);
+    }
+
+    /**
+     * Точный перебор всех фильмов с лайками, для сравнения полноты и скорости с LSH.
+     */
+    List<Integer> similarExact(int filmId, int limit) {
+        int[] candidates;
+        lock.readLock().lock();
+        try {
+            candidates = signatures.keySet().stream()
+                    .mapToInt(Integer::intValue)
+                    .filter(id -> id != filmId)
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rank(filmId, candidates, limit);
+    }
+
+    private List<Integer> rank(int filmId, int[] candidates, int limit) {
+        double[] similarity = likeIndex.jaccard(filmId, candidates);
+        Integer[] order = new Integer[candidates.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> -similarity[i])
+                .thenComparingInt(i -> candidates[i]));
+
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < order.length && result.size() < limit; i++) {
+            if (similarity[order[i]] > 0) {
+                result.add(candidates[order[i]]);
+            }
+        }
+        return result;
+    }
+
+    private int[] signature(RoaringBitmap users) {
+        int[] signature = emptySignature();
+        users.forEach((int userId) -> {
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], hash(i, userId));
+            }
+        });
+        return signature;
+    }
+
+    private void put(int filmId, int[] signature) {
+        signatures.put(filmId, signature);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bucketKey(signature, band), key -> new HashSet<>()).add(filmId);
+        }
+    }
+
+    private void remove(int filmId) {
+        int[] signature = signatures.remove(filmId);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bucketKey(signature, band);
+            Set<Integer> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(filmId);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    private int hash(int function, int userId) {
+        return (int) ((multipliers[function] * userId + increments[function]) >>> 32);
+    }
+
+    private static int[] emptySignature() {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+
+    private static long bucketKey(int[] signature, int band) {
+        int hash = 1;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            hash = 31 * hash + signature[row];
+        }
+        return ((long) band << 32) | (hash & 0xFFFFFFFFL);
+    }
+}
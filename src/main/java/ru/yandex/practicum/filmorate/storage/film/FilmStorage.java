@@ -1,16 +1,20 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 
 public interface FilmStorage {
 
     Film createFilm(Film film);
 
+    List<Film> createFilms(List<Film> films);
+
     void updateFilm(Film film);
 
     void deleteFilm(int id);
@@ -19,11 +23,29 @@ public interface FilmStorage {
 
     List<Film> getFilms();
 
+    List<Film> getFilms(int after, int limit);
+
+    void streamFilms(Consumer<Film> consumer);
+
     Optional<Film> getFilmById(int id);
 
     void addLike(Film film, User user);
 
     void deleteLike(Film film, User user);
 
+    void applyLikes(List<LikeEvent> events);
+
+    void deleteLikesByUser(int userId);
+
+    void deleteAllLikes();
+
     List<Film> getPopularFilms(int count);
+
+    List<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId);
+
+    List<Film> getRecommendedFilms(int userId, int limit);
+
+    List<Film> getSimilarFilms(int filmId, int limit);
+
+    List<Film> searchFilms(String query, int limit);
 }
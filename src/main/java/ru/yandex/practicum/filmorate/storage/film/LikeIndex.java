@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Матрица лайков в памяти: для каждого фильма битовая карта лайкнувших пользователей и наоборот.
+ */
+@Component
+public class LikeIndex {
+
+    private final Map<Integer, RoaringBitmap> likersByFilm = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> filmsByUser = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void rebuild(Map<Integer, RoaringBitmap> likers) {
+        lock.writeLock().lock();
+        try {
+            likersByFilm.clear();
+            filmsByUser.clear();
+            likers.forEach((filmId, users) -> {
+                likersByFilm.put(filmId, users.clone());
+                users.forEach((int userId) -> bitmap(filmsByUser, userId).add(filmId));
+            });
+            likersByFilm.values().forEach(RoaringBitmap::runOptimize);
+            filmsByUser.values().forEach(RoaringBitmap::runOptimize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            bitmap(likersByFilm, filmId).add(userId);
+            bitmap(filmsByUser, userId).add(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            remove(likersByFilm, filmId, userId);
+            remove(filmsByUser, userId, filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap users = likersByFilm.remove(filmId);
+            if (users != null) {
+                users.forEach((int userId) -> remove(filmsByUser, userId, filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap films = filmsByUser.remove(userId);
+            if (films == null) {
+                return new int[0];
+            }
+            films.forEach((int filmId) -> remove(likersByFilm, filmId, userId));
+            return films.toArray();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            likersByFilm.clear();
+            filmsByUser.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public RoaringBitmap likers(int filmId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap users = likersByFilm.get(filmId);
+            return users == null ? new RoaringBitmap() : users.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double[] jaccard(int filmId, int[] otherIds) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap users = likersByFilm.getOrDefault(filmId, new RoaringBitmap());
+            double[] similarity = new double[otherIds.length];
+            for (int i = 0; i < otherIds.length; i++) {
+                RoaringBitmap other = likersByFilm.get(otherIds[i]);
+                if (other != null && !users.isEmpty()) {
+                    similarity[i] = (double) RoaringBitmap.andCardinality(users, other)
+                            / RoaringBitmap.orCardinality(users, other);
+                }
+            }
+            return similarity;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Рекомендации по схожести фильмов: кандидат получает сумму косинусных мер схожести
+     * с каждым фильмом, который пользователь уже лайкнул. Схожесть считается по пересечению множеств лайкнувших.
+     */
+    public List<Integer> recommend(int userId, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap liked = filmsByUser.get(userId);
+            if (liked == null || liked.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            RoaringBitmap neighbours = new RoaringBitmap();
+            liked.forEach((int filmId) -> neighbours.or(likersByFilm.get(filmId)));
+            neighbours.remove(userId);
+
+            RoaringBitmap candidates = new RoaringBitmap();
+            neighbours.forEach((int neighbourId) -> candidates.or(filmsByUser.get(neighbourId)));
+            candidates.andNot(liked);
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            RoaringBitmap[] likedLikers = new RoaringBitmap[liked.getCardinality()];
+            int index = 0;
+            for (int filmId : liked) {
+                likedLikers[index++] = likersByFilm.get(filmId);
+            }
+
+            int[] candidateIds = candidates.toArray();
+            double[] scores = new double[candidateIds.length];
+            IntStream.range(0, candidateIds.length).parallel()
+                    .forEach(i -> scores[i] = score(likersByFilm.get(candidateIds[i]), likedLikers));
+
+            return top(candidateIds, scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static double score(RoaringBitmap candidateLikers, RoaringBitmap[] likedLikers) {
+        int candidateLikes = candidateLikers.getCardinality();
+        double score = 0;
+        for (RoaringBitmap likers : likedLikers) {
+            int common = RoaringBitmap.andCardinality(candidateLikers, likers);
+            if (common > 0) {
+                score += common / Math.sqrt((double) candidateLikes * likers.getCardinality());
+            }
+        }
+        return score;
+    }
+
+    private static List<Integer> top(int[] ids, double[] scores, int limit) {
+        PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.<Integer>comparingDouble(i -> scores[i])
+                .thenComparing(i -> -ids[i]));
+        for (int i = 0; i < ids.length; i++) {
+            best.add(i);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Integer> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(ids[best.poll()]);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static RoaringBitmap bitmap(Map<Integer, RoaringBitmap> bitmaps, int id) {
+        return bitmaps.computeIfAbsent(id, key -> new RoaringBitmap());
+    }
+
+    private static void remove(Map<Integer, RoaringBitmap> bitmaps, int id, int value) {
+        RoaringBitmap bitmap = bitmaps.get(id);
+        if (bitmap != null) {
+            bitmap.remove(value);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(id);
+            }
+        }
+    }
+}
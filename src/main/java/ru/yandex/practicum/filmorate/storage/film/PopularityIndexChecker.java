@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityIndexChecker {
+
+    private final FilmDbStorage filmDbStorage;
+    private final FilmPopularityIndex popularityIndex;
+
+    @Scheduled(fixedDelayString = "${filmorate.popularity.check-interval}",
+            initialDelayString = "${filmorate.popularity.check-interval}")
+    public void checkAndRepair() {
+        List<Integer> mismatched = findMismatches();
+        if (mismatched.isEmpty()) {
+            return;
+        }
+        // лайки, поставленные во время проверки, дают ложные расхождения, поэтому перепроверяем
+        mismatched = findMismatches();
+        if (mismatched.isEmpty()) {
+            return;
+        }
+        log.warn("Индекс популярности расходится с базой для фильмов {}, индекс будет перестроен", mismatched);
+        filmDbStorage.rebuildPopularityIndex();
+    }
+
+    public List<Integer> findMismatches() {
+        Map<Integer, Integer> expected = filmDbStorage.loadLikeCounts();
+        Map<Integer, Integer> actual = popularityIndex.snapshot();
+
+        Set<Integer> filmIds = new TreeSet<>(expected.keySet());
+        filmIds.addAll(actual.keySet());
+
+        return filmIds.stream()
+                .filter(filmId -> !Objects.equals(expected.get(filmId), actual.get(filmId)))
+                .collect(Collectors.toList());
+    }
+}
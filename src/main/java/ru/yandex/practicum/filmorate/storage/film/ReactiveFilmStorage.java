@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Неблокирующее чтение фильмов с той же семантикой, что у {@link FilmStorage}: фильмы идут по возрастанию id,
+ * популярные - в порядке индекса популярности, у каждого фильма заполнены MPA и жанры.
+ */
+public interface ReactiveFilmStorage {
+
+    Flux<Film> getFilms();
+
+    Flux<Film> getFilms(int after, int limit);
+
+    Mono<Film> getFilmById(int id);
+
+    Flux<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId);
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разбивает русский и английский текст на термы: нижний регистр, ё -> е и отсечение частых окончаний.
+ * Стемминг грубый, но одинаково применяется к фильмам и запросам, поэтому "комедии" находит "комедия".
+ */
+final class SearchTokenizer {
+
+    private static final int MIN_STEM_LENGTH = 3;
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "иям", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией", "ием", "иях", "ий", "ый", "ой",
+            "ая", "яя", "ое", "ее", "ые", "ие", "ей", "ом", "ем", "ам", "ям", "ах", "ях", "ов", "ев", "ью", "ия",
+            "ию", "ии", "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"
+    };
+
+    private SearchTokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(stem(normalized.substring(start, i)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    static String stem(String word) {
+        if (Character.UnicodeBlock.of(word.charAt(0)) != Character.UnicodeBlock.CYRILLIC) {
+            return stemEnglish(word);
+        }
+        for (String ending : RUSSIAN_ENDINGS) {
+            if (word.endsWith(ending) && word.length() - ending.length() >= MIN_STEM_LENGTH) {
+                return word.substring(0, word.length() - ending.length());
+            }
+        }
+        return word;
+    }
+
+    // для английского только множественное число (вариант S-стеммера Хармана), иначе "machine" и "machines" расходятся
+    private static String stemEnglish(String word) {
+        if (word.length() <= MIN_STEM_LENGTH) {
+            return word;
+        }
+        if (word.endsWith("ies") && !word.endsWith("eies") && !word.endsWith("aies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.endsWith("sses") || word.endsWith("xes") || word.endsWith("ches") || word.endsWith("shes")) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.endsWith("es") && !word.endsWith("aes") && !word.endsWith("ees") && !word.endsWith("oes")) {
+            return word.substring(0, word.length() - 1);
+        }
+        if (word.endsWith("s") && !word.endsWith("us") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}
@@ -8,6 +8,11 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.ModifiesTables;
+import ru.yandex.practicum.filmorate.storage.TableVersions.Table;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.replica.ReadOnlyQuery;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -19,8 +24,10 @@ import java.util.Optional;
 public class GenreDbStorage implements GenreStorage {
 
     private final NamedParameterJdbcOperations operations;
+    private final FilmPopularityIndex popularityIndex;
 
     @Override
+    @ModifiesTables(Table.GENRE)
     public Genre createGenre(Genre genre) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
@@ -36,6 +43,7 @@ public class GenreDbStorage implements GenreStorage {
     }
 
     @Override
+    @ModifiesTables(Table.GENRE)
     public void updateGenre(Genre genre) {
         String sqlQuery = "UPDATE genre SET name  = :name WHERE id = :id";
         MapSqlParameterSource params = new MapSqlParameterSource();
@@ -46,6 +54,7 @@ public class GenreDbStorage implements GenreStorage {
     }
 
     @Override
+    @ReadOnlyQuery
     public Optional<Genre> getGenreById(int id) {
 
         String sqlQuery = "SELECT * FROM genre WHERE id = :genreId";
@@ -61,6 +70,7 @@ public class GenreDbStorage implements GenreStorage {
     }
 
     @Override
+    @ReadOnlyQuery
     public List<Genre> getGenresById(List<Integer> ids) {
         String sqlQuery = "SELECT * FROM genre WHERE id in (:ids )";
         SqlParameterSource filmIds = new MapSqlParameterSource("ids", ids);
@@ -69,6 +79,7 @@ public class GenreDbStorage implements GenreStorage {
     }
 
     @Override
+    @ReadOnlyQuery
     public List<Genre> getAll() {
         String sqlQuery = "SELECT * FROM genre";
 
@@ -76,16 +87,20 @@ public class GenreDbStorage implements GenreStorage {
     }
 
     @Override
+    @ModifiesTables({Table.GENRE, Table.FILM_GENRE})
     public void deleteAllGenres() {
         String sqlQuery = "DELETE FROM genre";
         operations.getJdbcOperations().update(sqlQuery);
+        AfterCommit.run(popularityIndex::removeAllGenres);
     }
 
     @Override
+    @ModifiesTables({Table.GENRE, Table.FILM_GENRE})
     public void deleteGenreById(int id) {
         String sqlQuery = "DELETE FROM genre WHERE id = :id";
         SqlParameterSource genreId = new MapSqlParameterSource("id", id);
         operations.update(sqlQuery, genreId);
+        AfterCommit.run(() -> popularityIndex.removeGenre(id));
     }
 
     private Genre makeGenre(ResultSet rs) throws SQLException {
@@ -8,6 +8,11 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.ModifiesTables;
+import ru.yandex.practicum.filmorate.storage.TableVersions.Table;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.replica.ReadOnlyQuery;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -19,8 +24,10 @@ import java.util.Optional;
 public class MpaDbStorage implements MpaStorage {
 
     private final NamedParameterJdbcOperations operations;
+    private final FilmPopularityIndex popularityIndex;
 
     @Override
+    @ModifiesTables(Table.RATING_MPA)
     public Mpa createMpa(Mpa mpa) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
@@ -36,6 +43,7 @@ public class MpaDbStorage implements MpaStorage {
     }
 
     @Override
+    @ModifiesTables(Table.RATING_MPA)
     public void updateMpa(Mpa mpa) {
         String sqlQuery = "UPDATE ratingMPA SET rating_name = :name WHERE id = :id";
         MapSqlParameterSource params = new MapSqlParameterSource();
@@ -45,6 +53,7 @@ public class MpaDbStorage implements MpaStorage {
     }
 
     @Override
+    @ReadOnlyQuery
     public Optional<Mpa> getMpaById(int id) {
 
         String sqlQuery = "SELECT * FROM ratingMPA WHERE id = :mpaId";
@@ -60,22 +69,27 @@ public class MpaDbStorage implements MpaStorage {
     }
 
     @Override
+    @ReadOnlyQuery
     public List<Mpa> getAll() {
         String sqlQuery = "SELECT * FROM ratingMPA";
         return operations.query(sqlQuery, (rs, rowNum) -> makeMpa(rs));
     }
 
     @Override
+    @ModifiesTables({Table.RATING_MPA, Table.FILMS})
     public void deleteAllMpa() {
         String sqlQuery = "DELETE FROM ratingMPA";
         operations.getJdbcOperations().update(sqlQuery);
+        AfterCommit.run(popularityIndex::removeAllMpa);
     }
 
     @Override
+    @ModifiesTables({Table.RATING_MPA, Table.FILMS})
     public void deleteMpaById(int id) {
         String sqlQuery = "DELETE FROM ratingMPA WHERE id = :id";
         SqlParameterSource mpaId = new MapSqlParameterSource("id", id);
         operations.update(sqlQuery, mpaId);
+        AfterCommit.run(() -> popularityIndex.removeMpa(id));
     }
 
     private Mpa makeMpa(ResultSet rs) throws SQLException {
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Read-your-writes: после изменяющего запроса запоминает позицию журнала репликации для клиента, и в течение
+ * sticky-ttl его чтения идут только на реплики, применившие эту позицию, иначе в первичную базу.
+ * Клиент определяется по заголовку {@code X-Client-Id}, а без него по cookie, которая выдаётся при первой записи.
+ * Позиции хранятся не дольше sticky-ttl и не больше чем для sticky-clients клиентов.
+ */
+@Component
+@ConditionalOnProperty("filmorate.replica.enabled")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String CLIENT_HEADER = "X-Client-Id";
+    static final String CLIENT_COOKIE = "FILMORATE_CLIENT";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final ReplicationFeed feed;
+    private final Cache<String, Long> positions;
+
+    @Autowired
+    public ReadYourWritesFilter(ReplicationFeed feed,
+                                @Value("${filmorate.replica.sticky-ttl}") Duration stickyTtl,
+                                @Value("${filmorate.replica.sticky-clients}") long maxClients) {
+        this.feed = feed;
+        this.positions = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterWrite(stickyTtl)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        String clientId = clientId(request, response, write);
+        Long position = clientId == null ? null : positions.getIfPresent(clientId);
+        if (position != null) {
+            ReplicaRouting.requirePosition(position);
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRouting.clear();
+        }
+        // отклонённая запись ничего не изменила, и запрос позиции журнала ей ни к чему
+        if (write && response.getStatus() >= 200 && response.getStatus() < 300) {
+            positions.put(clientId, feed.head());
+        }
+    }
+
+    private static String clientId(HttpServletRequest request, HttpServletResponse response, boolean write) {
+        String header = request.getHeader(CLIENT_HEADER);
+        if (header != null && !header.isBlank()) {
+            return header;
+        }
+        Cookie cookie = WebUtils.getCookie(request, CLIENT_COOKIE);
+        if (cookie != null) {
+            return cookie.getValue();
+        }
+        if (!write) {
+            return null;
+        }
+        // cookie выставляется до обработки запроса: после неё ответ может быть уже отправлен
+        String clientId = UUID.randomUUID().toString();
+        Cookie issued = new Cookie(CLIENT_COOKIE, clientId);
+        issued.setPath("/");
+        issued.setHttpOnly(true);
+        response.addCookie(issued);
+        return clientId;
+    }
+}
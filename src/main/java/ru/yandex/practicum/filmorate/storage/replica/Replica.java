@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Реплика и её состояние относительно журнала изменений: до какой позиции журнала она применила изменения
+ * и на какой момент содержит все записи первичной базы.
+ */
+public class Replica implements AutoCloseable {
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final NavigableMap<Long, Gap> skipped = new TreeMap<>();
+    private volatile long position;
+    private volatile long caughtUpAtMillis;
+    private volatile boolean inSync;
+    private long gapSinceMillis;
+
+    public Replica(String name, HikariDataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public boolean isInSync() {
+        return inSync;
+    }
+
+    /**
+     * Отставание от первичной базы: сколько прошло с момента, на который реплика гарантированно
+     * содержала все записи. Пока реплика не синхронизирована, отставание бесконечно.
+     */
+    public long lagMillis(long nowMillis) {
+        return inSync ? Math.max(0, nowMillis - caughtUpAtMillis) : Long.MAX_VALUE;
+    }
+
+    JdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    TransactionTemplate transactions() {
+        return transactions;
+    }
+
+    void synced(long position, long caughtUpAtMillis) {
+        this.position = position;
+        this.caughtUpAtMillis = caughtUpAtMillis;
+        this.inSync = true;
+    }
+
+    void advanced(long position) {
+        this.position = position;
+    }
+
+    void caughtUp(long caughtUpAtMillis) {
+        this.caughtUpAtMillis = caughtUpAtMillis;
+    }
+
+    void outOfSync() {
+        this.inSync = false;
+    }
+
+    long gapSince(long nowMillis) {
+        if (gapSinceMillis == 0) {
+            gapSinceMillis = nowMillis;
+        }
+        return gapSinceMillis;
+    }
+
+    void gapClosed() {
+        gapSinceMillis = 0;
+    }
+
+    /**
+     * Пропущенные позиции журнала, которые ещё может закоммитить долгая транзакция.
+     */
+    Collection<Gap> skippedGaps() {
+        return skipped.values();
+    }
+
+    void skipped(long from, long to, long nowMillis) {
+        skipped.put(from, new Gap(from, to, nowMillis));
+    }
+
+    /**
+     * Убирает из пропусков позиции, строки которых уже применены.
+     */
+    void filled(List<Long> seqs) {
+        for (long seq : seqs) {
+            Map.Entry<Long, Gap> entry = skipped.floorEntry(seq);
+            if (entry == null || entry.getValue().to < seq) {
+                continue;
+            }
+            Gap gap = entry.getValue();
+            skipped.remove(gap.from);
+            if (gap.from < seq) {
+                skipped.put(gap.from, new Gap(gap.from, seq - 1, gap.skippedAtMillis));
+            }
+            if (seq < gap.to) {
+                skipped.put(seq + 1, new Gap(seq + 1, gap.to, gap.skippedAtMillis));
+            }
+        }
+    }
+
+    List<Gap> forgetSkippedBefore(long millis) {
+        List<Gap> forgotten = new ArrayList<>();
+        skipped.values().removeIf(gap -> gap.skippedAtMillis < millis && forgotten.add(gap));
+        return forgotten;
+    }
+
+    void clearSkipped() {
+        skipped.clear();
+    }
+
+    /**
+     * Позиция, до которой журнал можно чистить: записи пропусков ещё нужны.
+     */
+    long purgeablePosition() {
+        return skipped.isEmpty() ? position : Math.min(position, skipped.firstKey() - 1);
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+    static final class Gap {
+        final long from;
+        final long to;
+        final long skippedAtMillis;
+
+        Gap(long from, long to, long skippedAtMillis) {
+            this.from = from;
+            this.to = to;
+            this.skippedAtMillis = skippedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * При {@code filmorate.replica.enabled=true} заменяет автоконфигурируемый DataSource маршрутизирующим:
+ * первичная база настраивается обычными {@code spring.datasource.*}, реплики перечисляются
+ * в {@code filmorate.replica.urls} и подключаются с теми же учётными данными.
+ */
+@Configuration
+@ConditionalOnProperty("filmorate.replica.enabled")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaSet replicaSet(DataSourceProperties properties,
+                                 @Value("${filmorate.replica.urls}") List<String> urls,
+                                 @Value("${filmorate.replica.max-lag}") Duration maxLag) {
+        List<Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String name = "replica-" + i;
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(urls.get(i))
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            dataSource.setPoolName(name);
+            replicas.add(new Replica(name, dataSource));
+        }
+        return new ReplicaSet(replicas, maxLag.toMillis());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, ReplicaSet replicas) {
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import java.util.function.Supplier;
+
+/**
+ * Состояние маршрутизации текущего потока: закреплённая за вызовом реплика, позиция журнала, которую должна была
+ * применить реплика (read-your-writes), и принудительное чтение из первичной базы.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Long> REQUIRED_POSITION = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+    private static final ThreadLocal<String> REPLICA = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    public static void requirePosition(long position) {
+        REQUIRED_POSITION.set(position);
+    }
+
+    public static long requiredPosition() {
+        Long position = REQUIRED_POSITION.get();
+        return position == null ? 0 : position;
+    }
+
+    public static void clear() {
+        REQUIRED_POSITION.remove();
+    }
+
+    public static String currentReplica() {
+        return REPLICA.get();
+    }
+
+    static void pin(String replica) {
+        REPLICA.set(replica);
+    }
+
+    static void unpin() {
+        REPLICA.remove();
+    }
+
+    public static boolean isPrimaryOnly() {
+        return PRIMARY_ONLY.get() != null;
+    }
+
+    /**
+     * Выполняет чтение в первичной базе. Нужно там, где результат переживает запрос, например при заполнении
+     * кэшей: значение с отстающей реплики осталось бы в кэше до истечения его TTL.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (PRIMARY_ONLY.get() != null) {
+            return action.get();
+        }
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY_ONLY.remove();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Закрепляет за вызовом {@link ReadOnlyQuery}-метода одну свежую реплику: все запросы метода, включая вложенные
+ * чтения, идут в неё, так что метод видит согласованный снимок. Внутри транзакции и при
+ * {@link ReplicaRouting#onPrimary} реплика не выбирается.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty("filmorate.replica.enabled")
+public class ReplicaRoutingAspect {
+
+    private final ReplicaSet replicas;
+
+    @Autowired
+    public ReplicaRoutingAspect(ReplicaSet replicas) {
+        this.replicas = replicas;
+    }
+
+    @Around("@annotation(ru.yandex.practicum.filmorate.storage.replica.ReadOnlyQuery)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (ReplicaRouting.currentReplica() != null || ReplicaRouting.isPrimaryOnly()
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Replica replica = replicas.choose(ReplicaRouting.requiredPosition());
+        if (replica == null) {
+            return joinPoint.proceed();
+        }
+        ReplicaRouting.pin(replica.getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaRouting.unpin();
+        }
+    }
+}
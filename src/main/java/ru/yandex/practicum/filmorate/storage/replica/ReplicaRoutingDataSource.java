@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Выдаёт соединения реплики, закреплённой за текущим вызовом {@link ReplicaRoutingAspect}, иначе первичной базы.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaSet replicas) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.getReplicas().forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String replica = ReplicaRouting.currentReplica();
+        return replica == null ? PRIMARY : replica;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Набор реплик с выбором по кругу среди тех, что достаточно свежие для текущего чтения.
+ */
+public class ReplicaSet implements AutoCloseable {
+
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaSet(List<Replica> replicas, long maxLagMillis) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @param requiredPosition позиция журнала, которую реплика должна была применить, чтобы клиент увидел
+     *                         собственные записи
+     * @return подходящая реплика или null, если читать нужно из первичной базы
+     */
+    public Replica choose(long requiredPosition) {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.getPosition() >= requiredPosition && replica.lagMillis(now) <= maxLagMillis) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(Replica::close);
+    }
+}
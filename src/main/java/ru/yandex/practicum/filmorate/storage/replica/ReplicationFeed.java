@@ -0,0 +1,352 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Встроенная репликация H2: триггеры {@link ReplicationTrigger} на всех таблицах первичной базы пишут образы строк
+ * в {@code replication_log}, а фоновая задача по порядку применяет их к каждой реплике через MERGE и DELETE
+ * по первичному ключу. Применение идемпотентно, поэтому реплика загружается из снимка {@code SCRIPT}
+ * и догоняет журнал с позиции, прочитанной до снимка. Пропущенные позиции журнала перечитываются, пока не истечёт
+ * {@code filmorate.replica.gap-retention}: их может закоммитить долгая транзакция.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("filmorate.replica.enabled")
+@DependsOnDatabaseInitialization
+public class ReplicationFeed implements MeterBinder {
+
+    static final String LOG_TABLE = "REPLICATION_LOG";
+
+    private static final String CREATE_LOG = "CREATE TABLE IF NOT EXISTS replication_log (" +
+            "seq bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "table_name varchar(255) NOT NULL, " +
+            "old_row varchar ARRAY, " +
+            "new_row varchar ARRAY, " +
+            "created_at bigint NOT NULL)";
+    private static final String SELECT_CHANGES = "SELECT seq, table_name, old_row, new_row FROM replication_log " +
+            "WHERE seq > ? ORDER BY seq LIMIT ?";
+    private static final String SELECT_SKIPPED = "SELECT seq, table_name, old_row, new_row FROM replication_log " +
+            "WHERE seq BETWEEN ? AND ? ORDER BY seq";
+
+    private final JdbcTemplate primary;
+    private final ReplicaSet replicas;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final long gapRetentionMillis;
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+    private long purgedBefore;
+
+    @Autowired
+    public ReplicationFeed(@Qualifier("primaryDataSource") DataSource primary,
+                           ReplicaSet replicas,
+                           @Value("${filmorate.replica.batch-size}") int batchSize,
+                           @Value("${filmorate.replica.gap-timeout}") Duration gapTimeout,
+                           @Value("${filmorate.replica.gap-retention}") Duration gapRetention) {
+        this.primary = new JdbcTemplate(primary);
+        this.replicas = replicas;
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeout.toMillis();
+        this.gapRetentionMillis = gapRetention.toMillis();
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        install();
+        // журнал мог остаться от прошлого запуска, его начало уже почищено
+        Long first = primary.queryForObject("SELECT MIN(seq) FROM replication_log", Long.class);
+        purgedBefore = first == null ? 0 : first;
+        replicas.getReplicas().forEach(this::bootstrap);
+    }
+
+    /**
+     * Последняя позиция журнала в первичной базе. Записи, закоммиченные до вызова, имеют позицию не больше неё.
+     */
+    public long head() {
+        Long seq = primary.queryForObject("SELECT MAX(seq) FROM replication_log", Long.class);
+        return seq == null ? 0 : seq;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.replica.sync-interval}")
+    public synchronized void sync() {
+        for (Replica replica : replicas.getReplicas()) {
+            if (replica.isInSync()) {
+                catchUp(replica);
+            } else {
+                bootstrap(replica);
+            }
+        }
+        purge();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas.getReplicas()) {
+            TimeGauge.builder("filmorate.replica.lag", replica, TimeUnit.MILLISECONDS, ReplicationFeed::lagMillis)
+                    .description("Отставание реплики от первичной базы")
+                    .tag("replica", replica.getName())
+                    .register(registry);
+            Gauge.builder("filmorate.replica.position", replica, Replica::getPosition)
+                    .description("Последняя применённая позиция журнала репликации")
+                    .tag("replica", replica.getName())
+                    .register(registry);
+        }
+    }
+
+    private void install() {
+        List<String> names = primary.queryForList("SELECT table_name FROM information_schema.tables " +
+                "WHERE table_schema = 'PUBLIC' AND table_type = 'BASE TABLE' AND table_name <> ? " +
+                "ORDER BY table_name", String.class, LOG_TABLE);
+        for (String name : names) {
+            List<String> columns = primary.queryForList("SELECT column_name FROM information_schema.columns " +
+                    "WHERE table_schema = 'PUBLIC' AND table_name = ? ORDER BY ordinal_position", String.class, name);
+            List<String> keys = primary.queryForList("SELECT k.column_name " +
+                    "FROM information_schema.table_constraints AS c " +
+                    "JOIN information_schema.key_column_usage AS k ON k.constraint_schema = c.constraint_schema " +
+                    "AND k.constraint_name = c.constraint_name " +
+                    "WHERE c.constraint_type = 'PRIMARY KEY' AND c.table_schema = 'PUBLIC' AND c.table_name = ? " +
+                    "ORDER BY k.ordinal_position", String.class, name);
+            tables.put(name, new Table(name, columns, keys.isEmpty() ? columns : keys));
+        }
+
+        primary.execute(CREATE_LOG);
+        for (String name : tables.keySet()) {
+            primary.execute("CREATE TRIGGER IF NOT EXISTS " + quote("REPLICATE_" + name) +
+                    " AFTER INSERT, UPDATE, DELETE ON " + quote(name) +
+                    " FOR EACH ROW CALL '" + ReplicationTrigger.class.getName() + "'");
+        }
+        log.info("Журнал репликации подключён к таблицам {}", tables.keySet());
+    }
+
+    private void bootstrap(Replica replica) {
+        long startedAt = System.currentTimeMillis();
+        try {
+            long position = head();
+            List<String> script = primary.queryForList("SCRIPT NOPASSWORDS NOSETTINGS TABLE " +
+                    tables.keySet().stream().map(ReplicationFeed::quote).collect(Collectors.joining(", ")),
+                    String.class);
+
+            JdbcTemplate jdbc = replica.jdbc();
+            jdbc.execute("DROP ALL OBJECTS");
+            script.stream()
+                    .filter(ReplicationFeed::isReplicated)
+                    .forEach(jdbc::execute);
+            // целостность уже проверена первичной базой, а каскадные удаления приходят в журнал отдельными строками
+            jdbc.execute("SET REFERENTIAL_INTEGRITY FALSE");
+
+            replica.synced(position, startedAt);
+            replica.gapClosed();
+            skipUncommitted(replica, position, startedAt);
+            log.info("Реплика {} загружена из снимка первичной базы на позиции журнала {}", replica.getName(), position);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось загрузить реплику {}: {}", replica.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Снимок не содержит транзакций, которые ещё не закоммичены, а их позиции могут быть ниже прочитанной:
+     * все дыры журнала до неё перечитываются как пропуски.
+     */
+    private void skipUncommitted(Replica replica, long position, long now) {
+        replica.clearSkipped();
+        long[] previous = {Math.max(purgedBefore - 1, 0)};
+        primary.query("SELECT seq FROM replication_log WHERE seq >= ? AND seq <= ? ORDER BY seq", rs -> {
+            long seq = rs.getLong("seq");
+            if (seq > previous[0] + 1) {
+                replica.skipped(previous[0] + 1, seq - 1, now);
+            }
+            previous[0] = seq;
+        }, purgedBefore, position);
+    }
+
+    private void catchUp(Replica replica) {
+        long startedAt = System.currentTimeMillis();
+        List<Change> late = committedLate(replica, startedAt);
+        List<Change> changes = primary.query(SELECT_CHANGES, ReplicationFeed::mapChange,
+                replica.getPosition(), batchSize);
+        List<Change> ready = contiguous(replica, changes, startedAt);
+
+        if (!late.isEmpty() || !ready.isEmpty()) {
+            try {
+                // поздние строки пишутся первыми: более новые изменения тех же строк могли начаться только после их коммита
+                replica.transactions().executeWithoutResult(status -> {
+                    late.forEach(change -> apply(replica, change));
+                    ready.forEach(change -> apply(replica, change));
+                });
+            } catch (DataAccessException e) {
+                log.warn("Реплика {} не смогла применить журнал с позиции {}, будет загружена заново: {}",
+                        replica.getName(), replica.getPosition(), e.getMessage());
+                replica.outOfSync();
+                return;
+            }
+            replica.filled(late.stream().map(change -> change.seq).collect(Collectors.toList()));
+            if (!ready.isEmpty()) {
+                replica.advanced(ready.get(ready.size() - 1).seq);
+            }
+        }
+        // всё, что было закоммичено до начала прохода, уже применено
+        if (ready.size() == changes.size() && changes.size() < batchSize) {
+            replica.caughtUp(startedAt);
+        }
+    }
+
+    /**
+     * Позиции выдаются при вставке, а коммитятся транзакции в другом порядке, поэтому на пропуске останавливаемся:
+     * его может заполнить ещё не закоммиченная транзакция. Пропуск старше gap-timeout перестаёт задерживать журнал
+     * и запоминается, чтобы перечитывать его позиции в следующих проходах.
+     */
+    private List<Change> contiguous(Replica replica, List<Change> changes, long now) {
+        List<Change> ready = new ArrayList<>(changes.size());
+        long expected = replica.getPosition() + 1;
+        for (Change change : changes) {
+            if (change.seq != expected) {
+                if (now - replica.gapSince(now) < gapTimeoutMillis) {
+                    break;
+                }
+                log.debug("Позиции журнала {}..{} пропущены для реплики {}: транзакция откатилась или не закоммичена",
+                        expected, change.seq - 1, replica.getName());
+                replica.skipped(expected, change.seq - 1, now);
+            }
+            replica.gapClosed();
+            ready.add(change);
+            expected = change.seq + 1;
+        }
+        return ready;
+    }
+
+    /**
+     * Строки, закоммиченные в пропущенные ранее позиции. Пропуски старше gap-retention считаются откатами
+     * и забываются после последней проверки.
+     */
+    private List<Change> committedLate(Replica replica, long now) {
+        List<Change> late = new ArrayList<>();
+        for (Replica.Gap gap : replica.skippedGaps()) {
+            late.addAll(primary.query(SELECT_SKIPPED, ReplicationFeed::mapChange, gap.from, gap.to));
+        }
+        for (Replica.Gap gap : replica.forgetSkippedBefore(now - gapRetentionMillis)) {
+            log.info("Позиции журнала {}..{} не закоммичены за gap-retention и больше не перечитываются для реплики {}",
+                    gap.from, gap.to, replica.getName());
+        }
+        late.sort(Comparator.comparingLong(change -> change.seq));
+        return late;
+    }
+
+    private void apply(Replica replica, Change change) {
+        Table table = tables.get(change.table);
+        if (table == null) {
+            return;
+        }
+        if (change.oldRow != null && (change.newRow == null || !table.sameKey(change.oldRow, change.newRow))) {
+            replica.jdbc().update(table.delete, table.key(change.oldRow));
+        }
+        if (change.newRow != null) {
+            replica.jdbc().update(table.merge, (Object[]) change.newRow);
+        }
+    }
+
+    private void purge() {
+        long applied = replicas.getReplicas().stream()
+                .filter(Replica::isInSync)
+                .mapToLong(Replica::purgeablePosition)
+                .min()
+                .orElse(0);
+        // последнюю применённую запись оставляем, чтобы head() не откатывался к нулю
+        if (applied > purgedBefore) {
+            primary.update("DELETE FROM replication_log WHERE seq < ?", applied);
+            purgedBefore = applied;
+        }
+    }
+
+    private static boolean isReplicated(String statement) {
+        return !statement.startsWith("--")
+                && !statement.startsWith("CREATE USER")
+                && !statement.startsWith("CREATE TRIGGER")
+                && !statement.startsWith("CREATE FORCE TRIGGER");
+    }
+
+    private static double lagMillis(Replica replica) {
+        return replica.isInSync() ? replica.lagMillis(System.currentTimeMillis()) : Double.NaN;
+    }
+
+    private static Change mapChange(ResultSet rs, int rowNum) throws SQLException {
+        return new Change(rs.getLong("seq"), rs.getString("table_name"),
+                strings(rs.getArray("old_row")), strings(rs.getArray("new_row")));
+    }
+
+    private static String[] strings(Array array) throws SQLException {
+        if (array == null) {
+            return null;
+        }
+        Object[] values = (Object[]) array.getArray();
+        return Arrays.copyOf(values, values.length, String[].class);
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier + '"';
+    }
+
+    private static final class Change {
+        private final long seq;
+        private final String table;
+        private final String[] oldRow;
+        private final String[] newRow;
+
+        Change(long seq, String table, String[] oldRow, String[] newRow) {
+            this.seq = seq;
+            this.table = table;
+            this.oldRow = oldRow;
+            this.newRow = newRow;
+        }
+    }
+
+    private static final class Table {
+        private final String merge;
+        private final String delete;
+        private final int[] keyIndexes;
+
+        Table(String name, List<String> columns, List<String> keys) {
+            this.keyIndexes = keys.stream().mapToInt(columns::indexOf).toArray();
+            this.merge = "MERGE INTO " + quote(name) +
+                    " (" + columns.stream().map(ReplicationFeed::quote).collect(Collectors.joining(", ")) + ")" +
+                    " KEY (" + keys.stream().map(ReplicationFeed::quote).collect(Collectors.joining(", ")) + ")" +
+                    " VALUES (" + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+            this.delete = "DELETE FROM " + quote(name) + " WHERE " +
+                    keys.stream().map(key -> quote(key) + " = ?").collect(Collectors.joining(" AND "));
+        }
+
+        Object[] key(String[] row) {
+            return Arrays.stream(keyIndexes).mapToObj(index -> row[index]).toArray();
+        }
+
+        boolean sameKey(String[] oldRow, String[] newRow) {
+            return Arrays.stream(keyIndexes).allMatch(index -> oldRow[index].equals(newRow[index]));
+        }
+    }
+}
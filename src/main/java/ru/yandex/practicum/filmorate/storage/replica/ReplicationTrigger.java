@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Триггер H2, который пишет образы строк до и после изменения в журнал {@code replication_log}.
+ * Запись идёт в той же транзакции, поэтому в журнал попадают только закоммиченные изменения.
+ */
+public class ReplicationTrigger implements Trigger {
+
+    private static final String INSERT_CHANGE =
+            "INSERT INTO replication_log (table_name, old_row, new_row, created_at) VALUES (?, ?, ?, ?)";
+
+    private String tableName;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) {
+        this.tableName = tableName;
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_CHANGE)) {
+            ps.setString(1, tableName);
+            ps.setObject(2, toStrings(oldRow));
+            ps.setObject(3, toStrings(newRow));
+            ps.setLong(4, System.currentTimeMillis());
+            ps.executeUpdate();
+        }
+    }
+
+    private static String[] toStrings(Object[] row) {
+        if (row == null) {
+            return null;
+        }
+        return Arrays.stream(row)
+                .map(value -> Objects.toString(value, null))
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.EntityCacheBuilder;
+import ru.yandex.practicum.filmorate.storage.replica.ReplicaRouting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Primary
+@Repository("cachedUserStorage")
+public class CachedUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final EntityCache<User> users;
+
+    @Autowired
+    public CachedUserStorage(@Qualifier("userDbStorage") UserStorage delegate, EntityCacheBuilder cacheBuilder) {
+        this.delegate = delegate;
+        this.users = cacheBuilder.build("users");
+    }
+
+    @Override
+    public User createUser(User user) {
+        User created = delegate.createUser(user);
+        users.invalidate(created.getId());
+        return created;
+    }
+
+    @Override
+    public List<User> createUsers(List<User> newUsers) {
+        List<User> created = delegate.createUsers(newUsers);
+        users.invalidateAll(created.stream().map(User::getId).collect(Collectors.toList()));
+        return created;
+    }
+
+    @Override
+    public void updateUser(User user) {
+        try {
+            delegate.updateUser(user);
+        } finally {
+            users.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public void deleteUser(int id) {
+        try {
+            delegate.deleteUser(id);
+        } finally {
+            users.invalidate(id);
+        }
+    }
+
+    @Override
+    public void deleteAllUsers() {
+        try {
+            delegate.deleteAllUsers();
+        } finally {
+            users.invalidateAll();
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsers(int after, int limit) {
+        return delegate.getUsers(after, limit);
+    }
+
+    @Override
+    public void streamUsers(Consumer<User> consumer) {
+        delegate.streamUsers(consumer);
+    }
+
+    @Override
+    public Optional<User> getUserById(int id) {
+        // загруженное значение живёт в кэше до TTL, поэтому читаем его не с реплики, которая может отставать
+        return users.get(id, key -> ReplicaRouting.onPrimary(() -> delegate.getUserById(key)));
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        Map<Integer, Optional<User>> found = users.getAll(ids, this::loadUsers);
+        return ids.stream()
+                .map(found::get)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void addFriend(User user, User friend) {
+        delegate.addFriend(user, friend);
+    }
+
+    @Override
+    public int addFriends(List<Friendship> friendships) {
+        return delegate.addFriends(friendships);
+    }
+
+    @Override
+    public void deleteFriend(User user, User friend) {
+        delegate.deleteFriend(user, friend);
+    }
+
+    @Override
+    public List<Integer> getUserFriends(int id) {
+        return delegate.getUserFriends(id);
+    }
+
+    @Override
+    public List<Integer> getUserFriends(int id, int after, int limit) {
+        return delegate.getUserFriends(id, after, limit);
+    }
+
+    @Override
+    public List<User> getFriends(int id, int after, int limit) {
+        return delegate.getFriends(id, after, limit);
+    }
+
+    @Override
+    public List<Integer> getFriendSuggestions(int id, int limit) {
+        return delegate.getFriendSuggestions(id, limit);
+    }
+
+    @Override
+    public List<User> getMutualFriends(User user, User friend) {
+        return delegate.getMutualFriends(user, friend);
+    }
+
+    private Map<Integer, Optional<User>> loadUsers(Iterable<? extends Integer> ids) {
+        Map<Integer, Optional<User>> loaded = new HashMap<>();
+        ids.forEach(id -> loaded.put(id, Optional.empty()));
+        delegate.getUsersByIds(new ArrayList<>(loaded.keySet()))
+                .forEach(user -> loaded.put(user.getId(), Optional.of(user)));
+        return loaded;
+    }
+}
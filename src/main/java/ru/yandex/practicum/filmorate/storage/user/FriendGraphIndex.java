@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя хранятся отсортированные массивы id друзей и подписчиков.
+ * Массивы не изменяются после публикации, запись подменяет их целиком, поэтому чтение идет без блокировок.
+ */
+@Component
+public class FriendGraphIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> followers = new ConcurrentHashMap<>();
+
+    public synchronized void rebuild(Map<Integer, int[]> friendsByUser) {
+        friends.clear();
+        followers.clear();
+
+        Map<Integer, Integer> followerCounts = new HashMap<>();
+        friendsByUser.forEach((userId, friendIds) -> {
+            int[] sorted = Arrays.copyOf(friendIds, friendIds.length);
+            Arrays.sort(sorted);
+            friends.put(userId, sorted);
+            for (int friendId : sorted) {
+                followerCounts.merge(friendId, 1, Integer::sum);
+            }
+        });
+
+        Map<Integer, int[]> built = new HashMap<>();
+        Map<Integer, Integer> filled = new HashMap<>();
+        followerCounts.forEach((friendId, count) -> built.put(friendId, new int[count]));
+        new TreeMap<>(friends).forEach((userId, friendIds) -> {
+            for (int friendId : friendIds) {
+                int position = filled.merge(friendId, 1, Integer::sum) - 1;
+                built.get(friendId)[position] = userId;
+            }
+        });
+        followers.putAll(built);
+    }
+
+    public synchronized void addFriend(int userId, int friendId) {
+        friends.put(userId, insert(friends(userId), friendId));
+        followers.put(friendId, insert(followers(friendId), userId));
+    }
+
+    public synchronized void addFriends(List<Friendship> friendships) {
+        Map<Integer, List<Integer>> added = new HashMap<>();
+        Map<Integer, List<Integer>> followed = new HashMap<>();
+        for (Friendship friendship : friendships) {
+            added.computeIfAbsent(friendship.getUserId(), id -> new ArrayList<>()).add(friendship.getFriendId());
+            followed.computeIfAbsent(friendship.getFriendId(), id -> new ArrayList<>()).add(friendship.getUserId());
+        }
+        added.forEach((userId, ids) -> friends.put(userId, merge(friends(userId), ids)));
+        followed.forEach((friendId, ids) -> followers.put(friendId, merge(followers(friendId), ids)));
+    }
+
+    public synchronized void removeFriend(int userId, int friendId) {
+        put(friends, userId, remove(friends(userId), friendId));
+        put(followers, friendId, remove(followers(friendId), userId));
+    }
+
+    public synchronized void removeUser(int userId) {
+        for (int friendId : friends(userId)) {
+            put(followers, friendId, remove(followers(friendId), userId));
+        }
+        for (int followerId : followers(userId)) {
+            put(friends, followerId, remove(friends(followerId), userId));
+        }
+        friends.remove(userId);
+        followers.remove(userId);
+    }
+
+    public synchronized void clear() {
+        friends.clear();
+        followers.clear();
+    }
+
+    /**
+     * Возвращает отсортированные id друзей пользователя. Массив общий и не должен изменяться.
+     */
+    public int[] friends(int userId) {
+        return friends.getOrDefault(userId, EMPTY);
+    }
+
+    public int[] friends(int userId, int after, int limit) {
+        int[] ids = friends(userId);
+        int from = Arrays.binarySearch(ids, after);
+        from = from >= 0 ? from + 1 : -from - 1;
+        return Arrays.copyOfRange(ids, from, (int) Math.min(ids.length, (long) from + limit));
+    }
+
+    /**
+     * Возвращает отсортированные id пользователей, добавивших данного в друзья. Массив общий и не должен изменяться.
+     */
+    public int[] followers(int userId) {
+        return followers.getOrDefault(userId, EMPTY);
+    }
+
+    public int[] mutualFriends(int userId, int otherId) {
+        int[] first = friends(userId);
+        int[] second = friends(otherId);
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static void put(Map<Integer, int[]> adjacency, int userId, int[] ids) {
+        if (ids.length == 0) {
+            adjacency.remove(userId);
+        } else {
+            adjacency.put(userId, ids);
+        }
+    }
+
+    private static int[] insert(int[] ids, int id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        position = -position - 1;
+        int[] result = new int[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        result[position] = id;
+        System.arraycopy(ids, position, result, position + 1, ids.length - position);
+        return result;
+    }
+
+    private static int[] remove(int[] ids, int id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        int[] result = new int[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+        return result;
+    }
+
+    private static int[] merge(int[] ids, List<Integer> added) {
+        int[] result = Arrays.copyOf(ids, ids.length + added.size());
+        int size = ids.length;
+        for (int id : added) {
+            result[size++] = id;
+        }
+        Arrays.sort(result);
+        return Arrays.stream(result).distinct().toArray();
+    }
+}
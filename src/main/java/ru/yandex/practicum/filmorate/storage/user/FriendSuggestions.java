@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Рекомендации "возможно, вы знакомы": пользователи, не являющиеся друзьями, ранжированные по числу общих друзей.
+ */
+@Component
+public class FriendSuggestions implements MeterBinder {
+
+    static final int MAX_SUGGESTIONS = 100;
+
+    private final FriendGraphIndex friendGraph;
+    private final int maxFanOut;
+    private final int parallelThreshold;
+    private final Cache<Integer, int[]> suggestions;
+
+    @Autowired
+    public FriendSuggestions(FriendGraphIndex friendGraph,
+                             @Value("${filmorate.suggestions.max-fan-out}") int maxFanOut,
+                             @Value("${filmorate.suggestions.parallel-threshold}") int parallelThreshold,
+                             @Value("${filmorate.suggestions.cache-size}") long cacheSize,
+                             @Value("${filmorate.suggestions.cache-ttl}") Duration cacheTtl) {
+        this.friendGraph = friendGraph;
+        this.maxFanOut = maxFanOut;
+        this.parallelThreshold = parallelThreshold;
+        this.suggestions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, suggestions, "friendSuggestions");
+    }
+
+    public int[] suggest(int userId, int limit) {
+        int[] ranked = suggestions.get(userId, this::compute);
+        return ranked.length <= limit ? ranked : Arrays.copyOf(ranked, limit);
+    }
+
+    /**
+     * Дружба user -> friend меняет список друзей user и подписчиков friend,
+     * поэтому устаревают рекомендации самого user и всех, у кого friend в друзьях.
+     */
+    public void invalidateFriendship(int userId, int friendId) {
+        suggestions.invalidate(userId);
+        for (int followerId : friendGraph.followers(friendId)) {
+            suggestions.invalidate(followerId);
+        }
+    }
+
+    public void invalidateAll() {
+        suggestions.invalidateAll();
+    }
+
+    int[] compute(int userId) {
+        int[] friends = friendGraph.friends(userId);
+        if (friends.length == 0) {
+            return new int[0];
+        }
+
+        long work = 0;
+        for (int friendId : friends) {
+            work += Math.min(friendGraph.followers(friendId).length, maxFanOut);
+        }
+
+        CountTask task = new CountTask(friends, 0, friends.length);
+        IntIntCounter counter = work >= parallelThreshold ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+
+        return counter.top(MAX_SUGGESTIONS,
+                candidateId -> candidateId == userId || Arrays.binarySearch(friends, candidateId) >= 0);
+    }
+
+    private class CountTask extends RecursiveTask<IntIntCounter> {
+        private static final int LEAF_SIZE = 64;
+        private static final int INITIAL_COUNTER_SIZE = 1024;
+
+        private final int[] friends;
+        private final int from;
+        private final int to;
+
+        CountTask(int[] friends, int from, int to) {
+            this.friends = friends;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntIntCounter compute() {
+            if (to - from <= LEAF_SIZE || getPool() == null) {
+                return count();
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(friends, from, middle);
+            left.fork();
+            IntIntCounter right = new CountTask(friends, middle, to).compute();
+            IntIntCounter result = left.join();
+            if (result.size() < right.size()) {
+                right.addAll(result);
+                return right;
+            }
+            result.addAll(right);
+            return result;
+        }
+
+        private IntIntCounter count() {
+            IntIntCounter counter = new IntIntCounter(INITIAL_COUNTER_SIZE);
+            for (int i = from; i < to; i++) {
+                // у очень популярных пользователей берем равномерную выборку подписчиков, а не всех
+                int[] followers = friendGraph.followers(friends[i]);
+                int sampled = Math.min(followers.length, maxFanOut);
+                for (int j = 0; j < sampled; j++) {
+                    int position = sampled == followers.length ? j : (int) ((long) j * followers.length / sampled);
+                    counter.increment(followers[position], 1);
+                }
+            }
+            return counter;
+        }
+    }
+}
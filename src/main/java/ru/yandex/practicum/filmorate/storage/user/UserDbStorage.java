@@ -1,27 +1,61 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.ModifiesTables;
+import ru.yandex.practicum.filmorate.storage.TableVersions.Table;
+import ru.yandex.practicum.filmorate.storage.replica.ReadOnlyQuery;
 
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository("userDbStorage")
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int IDS_BATCH_SIZE = 1000;
+
     private final NamedParameterJdbcOperations operations;
+    private final FriendGraphIndex friendGraph;
+    private final FriendSuggestions friendSuggestions;
+
+    @PostConstruct
+    public void rebuildFriendGraph() {
+        AdjacencyCollector collector = new AdjacencyCollector();
+        operations.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT viewer_id, friend_id FROM friendships ORDER BY viewer_id, friend_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, collector);
+        friendGraph.rebuild(collector.finish());
+        friendSuggestions.invalidateAll();
+    }
 
     @Override
     public User createUser(User user) {
@@ -45,6 +79,34 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    @Override
+    @Transactional
+    public List<User> createUsers(List<User> users) {
+        String sqlQuery = "INSERT INTO viewers (email, login, viewer_name, birthday) VALUES (?, ?, ?, ?)";
+
+        operations.getJdbcOperations().execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sqlQuery, new String[]{"viewer_id"})) {
+                for (User user : users) {
+                    ps.setString(1, user.getEmail());
+                    ps.setString(2, user.getLogin());
+                    ps.setString(3, user.getName());
+                    ps.setObject(4, user.getBirthday());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next()) {
+                        users.get(i++).setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+        return users;
+    }
+
     @Override
     public void updateUser(User user) {
         String sqlQuery = "UPDATE viewers SET email = :email, login = :login, viewer_name = :name, birthday = :birthday " +
@@ -62,6 +124,7 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @ModifiesTables({Table.LIKES, Table.FILMS})
     public void deleteUser(int id) {
         String sqlQueryForFriendship = "DELETE FROM friendships WHERE viewer_id = :id OR friend_id = :id";
         SqlParameterSource needId = new MapSqlParameterSource("id", id);
@@ -70,23 +133,59 @@ public class UserDbStorage implements UserStorage {
         String sqlQuery = "DELETE FROM viewers WHERE viewer_id = :id";
         operations.update(sqlQuery, needId);
 
-
+        friendGraph.removeUser(id);
+        friendSuggestions.invalidateAll();
     }
 
     @Override
+    @ModifiesTables({Table.LIKES, Table.FILMS})
     public void deleteAllUsers() {
         operations.getJdbcOperations().update("DELETE FROM friendships");
 
         operations.getJdbcOperations().update("DELETE FROM viewers");
+        friendGraph.clear();
+        friendSuggestions.invalidateAll();
     }
 
     @Override
+    @ReadOnlyQuery
     public List<User> getAllUsers() {
         String sql = "SELECT * FROM viewers";
         return operations.query(sql, (rs, rowNum) -> makeUser(rs));
     }
 
     @Override
+    @ReadOnlyQuery
+    public List<User> getUsers(int after, int limit) {
+        String sqlQuery = "SELECT * FROM viewers " +
+                "WHERE viewer_id > :after " +
+                "ORDER BY viewer_id " +
+                "LIMIT :limit";
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("after", after)
+                .addValue("limit", limit);
+
+        return operations.query(sqlQuery, params, (rs, rowNum) -> makeUser(rs));
+    }
+
+    @Override
+    @ReadOnlyQuery
+    public void streamUsers(Consumer<User> consumer) {
+        String sqlQuery = "SELECT * FROM viewers ORDER BY viewer_id";
+
+        operations.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement(sqlQuery,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(makeUser(rs));
+        });
+    }
+
+    @Override
+    @ReadOnlyQuery
     public Optional<User> getUserById(int id) {
 
         String sqlQuery = "SELECT * FROM viewers WHERE viewer_id = :userId";
@@ -112,6 +211,29 @@ public class UserDbStorage implements UserStorage {
         params.addValue("user_id", user.getId())
                 .addValue("friend_id", friend.getId());
         operations.update(sqlQuery, params);
+        friendGraph.addFriend(user.getId(), friend.getId());
+        friendSuggestions.invalidateFriendship(user.getId(), friend.getId());
+    }
+
+    @Override
+    @Transactional
+    public int addFriends(List<Friendship> friendships) {
+        String sqlQuery = "MERGE INTO friendships AS f USING " +
+                "(SELECT CAST(:user_id AS int) AS viewer_id, CAST(:friend_id AS int) AS friend_id) AS fs " +
+                "ON f.viewer_id = fs.viewer_id AND f.friend_id = fs.friend_id " +
+                "WHEN NOT MATCHED THEN INSERT (viewer_id, friend_id) values (:user_id, :friend_id)";
+        SqlParameterSource[] params = friendships.stream()
+                .sorted(Comparator.comparingInt(Friendship::getUserId).thenComparingInt(Friendship::getFriendId))
+                .map(friendship -> new MapSqlParameterSource("user_id", friendship.getUserId())
+                        .addValue("friend_id", friendship.getFriendId()))
+                .toArray(SqlParameterSource[]::new);
+
+        int added = Arrays.stream(operations.batchUpdate(sqlQuery, params)).sum();
+        AfterCommit.run(() -> {
+            friendGraph.addFriends(friendships);
+            friendSuggestions.invalidateAll();
+        });
+        return added;
     }
 
     @Override
@@ -121,39 +243,81 @@ public class UserDbStorage implements UserStorage {
         params.addValue("userId", user.getId())
                 .addValue("friendId", friend.getId());
         operations.update(sqlQuery, params);
+        friendGraph.removeFriend(user.getId(), friend.getId());
+        friendSuggestions.invalidateFriendship(user.getId(), friend.getId());
     }
 
     @Override
+    @ReadOnlyQuery
     public List<Integer> getUserFriends(int id) {
-        String sqlQuery = "SELECT * FROM friendships WHERE viewer_id = ?";
-        List<FriendShip> friendShips = operations.getJdbcOperations().query(sqlQuery, (rs, rowNum) -> makeFriendship(rs), id);
+        return Arrays.stream(friendGraph.friends(id))
+                .boxed()
+                .collect(Collectors.toList());
+    }
 
-        return friendShips.stream()
-                .map(FriendShip::getFriend)
-                .map(User::getId)
+    @Override
+    @ReadOnlyQuery
+    public List<Integer> getUserFriends(int id, int after, int limit) {
+        return Arrays.stream(friendGraph.friends(id, after, limit))
+                .boxed()
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<User> getMutualFriends(User user, User friend) {
-        String sqlQuery = "SELECT f1.friend_id AS common_friends, " +
-                "v.viewer_id, " +
-                "v.viewer_name, " +
-                "v.email, " +
-                "v.login, " +
-                "v.birthday " +
-                "FROM friendships AS f1 " +
-                "JOIN friendships AS f2 ON f1.friend_id = f2.friend_id " +
-                "JOIN viewers AS v ON f1.friend_id = v.viewer_id " +
-                "WHERE f1.viewer_id = :userId " +
-                "AND f2.viewer_id = :friendId ";
+    @ReadOnlyQuery
+    public List<User> getFriends(int id, int after, int limit) {
+        String sqlQuery = "SELECT v.* FROM viewers AS v " +
+                "WHERE v.viewer_id IN (SELECT friend_id FROM friendships " +
+                "WHERE viewer_id = :id AND friend_id > :after ORDER BY friend_id LIMIT :limit) " +
+                "ORDER BY v.viewer_id";
+
         MapSqlParameterSource params = new MapSqlParameterSource();
-        params.addValue("userId", user.getId())
-                .addValue("friendId", friend.getId());
+        params.addValue("id", id)
+                .addValue("after", after)
+                .addValue("limit", limit);
 
         return operations.query(sqlQuery, params, (rs, rowNum) -> makeUser(rs));
     }
 
+    @Override
+    @ReadOnlyQuery
+    public List<Integer> getFriendSuggestions(int id, int limit) {
+        return Arrays.stream(friendSuggestions.suggest(id, limit))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @ReadOnlyQuery
+    public List<User> getMutualFriends(User user, User friend) {
+        return getUsersByIds(Arrays.stream(friendGraph.mutualFriends(user.getId(), friend.getId()))
+                .boxed()
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    @ReadOnlyQuery
+    public List<User> getUsersByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sqlQuery = "SELECT * FROM viewers WHERE viewer_id IN (:ids)";
+
+        Map<Integer, User> usersById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IDS_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + IDS_BATCH_SIZE, ids.size()));
+            operations.query(sqlQuery, new MapSqlParameterSource("ids", batch), (RowCallbackHandler) rs -> {
+                User user = makeUser(rs);
+                usersById.put(user.getId(), user);
+            });
+        }
+
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     private User makeUser(ResultSet rs) throws SQLException {
         return User.builder()
                 .id(rs.getInt("viewer_id"))
@@ -164,18 +328,36 @@ public class UserDbStorage implements UserStorage {
                 .build();
     }
 
-    private FriendShip makeFriendship(ResultSet rs) throws SQLException {
-        Optional<User> user = getUserById(rs.getInt("viewer_id"));
-        Optional<User> friend = getUserById(rs.getInt("friend_id"));
+    private static class AdjacencyCollector implements RowCallbackHandler {
+        private final Map<Integer, int[]> friendsByUser = new HashMap<>();
+        private int[] buffer = new int[16];
+        private int size;
+        private int userId;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int viewerId = rs.getInt("viewer_id");
+            if (size > 0 && viewerId != userId) {
+                flush();
+            }
+            userId = viewerId;
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = rs.getInt("friend_id");
+        }
 
-        return new FriendShip(user.get(), friend.get());
-    }
+        Map<Integer, int[]> finish() {
+            if (size > 0) {
+                flush();
+            }
+            return friendsByUser;
+        }
 
-    @Getter
-    @AllArgsConstructor
-    class FriendShip {
-        User user;
-        User friend;
+        private void flush() {
+            friendsByUser.put(userId, Arrays.copyOf(buffer, size));
+            size = 0;
+        }
     }
 
 }
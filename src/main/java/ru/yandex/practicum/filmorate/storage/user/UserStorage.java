@@ -1,14 +1,18 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     User createUser(User user);
 
+    List<User> createUsers(List<User> users);
+
     void updateUser(User user);
 
     void deleteUser(int id);
@@ -17,13 +21,27 @@ public interface UserStorage {
 
     List<User> getAllUsers();
 
+    List<User> getUsers(int after, int limit);
+
+    void streamUsers(Consumer<User> consumer);
+
     Optional<User> getUserById(int id);
 
+    List<User> getUsersByIds(List<Integer> ids);
+
     void addFriend(User user, User friend);
 
+    int addFriends(List<Friendship> friendships);
+
     void deleteFriend(User user, User friend);
 
     List<Integer> getUserFriends(int id);
 
+    List<Integer> getUserFriends(int id, int after, int limit);
+
+    List<User> getFriends(int id, int after, int limit);
+
     List<User> getMutualFriends(User user, User friend);
+
+    List<Integer> getFriendSuggestions(int id, int limit);
 }
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.concurrency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcConcurrencyLimiterTest {
+    JdbcConcurrencyLimiter limiter;
+
+    @BeforeEach
+    public void beforeEach() {
+        SimpleDriverDataSource target = new SimpleDriverDataSource(new org.h2.Driver(),
+                "jdbc:h2:mem:limiter;DB_CLOSE_DELAY=-1", "sa", "");
+        limiter = new JdbcConcurrencyLimiter(target, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    public void getConnection_whenAllPermitsTaken_thenFailsAfterTimeout() throws Exception {
+        try (Connection first = limiter.getConnection(); Connection second = limiter.getConnection()) {
+            assertEquals(2, limiter.getInUse());
+            assertThrows(SQLTransientConnectionException.class, limiter::getConnection);
+        }
+        assertEquals(0, limiter.getInUse());
+    }
+
+    @Test
+    public void getConnection_whenConnectionClosed_thenWaiterProceeds() throws Exception {
+        limiter = new JdbcConcurrencyLimiter(limiter.getTargetDataSource(), 1, Duration.ofSeconds(5));
+        Connection first = limiter.getConnection();
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = limiter.getConnection()) {
+                return connection.isValid(1);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (limiter.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        assertFalse(waiter.isDone());
+
+        first.close();
+
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void close_whenCalledTwice_thenPermitReleasedOnce() throws Exception {
+        Connection connection = limiter.getConnection();
+        connection.close();
+        connection.close();
+
+        assertEquals(0, limiter.getInUse());
+    }
+
+    @Test
+    public void unwrap_whenConnectionRequested_thenProxyReturnedAndComparedByIdentity() throws Exception {
+        Connection connection = limiter.getConnection();
+        Connection other = limiter.getConnection();
+
+        assertSame(connection, connection.unwrap(Connection.class));
+        assertEquals(connection, connection);
+        assertNotEquals(connection, other);
+        assertEquals(System.identityHashCode(connection), connection.hashCode());
+
+        connection.unwrap(Connection.class).close();
+        other.close();
+
+        assertEquals(0, limiter.getInUse());
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonResponseCacheTest {
+    ObjectMapper objectMapper;
+    JsonResponseCache cache;
+    AtomicInteger loads;
+
+    @BeforeEach
+    public void beforeEach() {
+        objectMapper = new ObjectMapper();
+        cache = new JsonResponseCache(objectMapper, 100, 1024);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void respond_whenVersionUnchanged_thenSerializedOnce() throws IOException {
+        List<Genre> genres = List.of(new Genre(1, "Комедия"));
+
+        ResponseEntity<byte[]> first = cache.respond(request(null), "/genres", "\"v1\"", () -> load(genres));
+        ResponseEntity<byte[]> second = cache.respond(request(null), "/genres", "\"v1\"", () -> load(genres));
+
+        assertEquals(1, loads.get());
+        assertArrayEquals(objectMapper.writeValueAsBytes(genres), second.getBody());
+        assertEquals("Комедия", objectMapper.readTree(first.getBody()).get(0).get("name").asText());
+    }
+
+    @Test
+    public void respond_whenVersionChanged_thenSerializedAgain() {
+        cache.respond(request(null), "/genres", "\"v1\"", () -> load(List.of(new Genre(1, "Комедия"))));
+        ResponseEntity<byte[]> response = cache.respond(request(null), "/genres", "\"v2\"",
+                () -> load(List.of(new Genre(1, "Драма"))));
+
+        assertEquals(2, loads.get());
+        assertTrue(new String(response.getBody(), StandardCharsets.UTF_8).contains("Драма"));
+    }
+
+    @Test
+    public void respond_whenNoKey_thenSerializedEveryTime() {
+        List<Genre> genres = List.of(new Genre(1, "Комедия"));
+
+        cache.respond(request(null), null, "\"v1\"", () -> load(genres));
+        ResponseEntity<byte[]> response = cache.respond(request(null), null, "\"v1\"", () -> load(genres));
+
+        assertEquals(2, loads.get());
+        assertTrue(new String(response.getBody(), StandardCharsets.UTF_8).contains("Комедия"));
+    }
+
+    @Test
+    public void respond_whenLargeBodyAndGzipAccepted_thenCompressedWithWeakEtag() throws IOException {
+        List<Genre> genres = Collections.nCopies(100, new Genre(1, "Комедия"));
+        ServletWebRequest request = request("deflate, gzip;q=0.8");
+        request.getResponse().setHeader(HttpHeaders.ETAG, "\"v1\"");
+
+        ResponseEntity<byte[]> response = cache.respond(request, "/genres", "\"v1\"", () -> genres);
+
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaders().getFirst(HttpHeaders.VARY));
+        assertEquals("W/\"v1\"", request.getResponse().getHeader(HttpHeaders.ETAG));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertArrayEquals(objectMapper.writeValueAsBytes(genres), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void respond_whenSmallBodyOrGzipRefused_thenPlainJson() {
+        ResponseEntity<byte[]> small = cache.respond(request("gzip"), "/genres/1", "\"v1\"",
+                () -> new Genre(1, "Комедия"));
+        ResponseEntity<byte[]> refused = cache.respond(request("gzip;q=0, identity"), "/genres", "\"v1\"",
+                () -> Collections.nCopies(100, new Genre(1, "Комедия")));
+
+        assertNull(small.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNull(refused.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertFalse(JsonResponseCache.acceptsGzip("br"));
+    }
+
+    private Object load(Object value) {
+        loads.incrementAndGet();
+        return value;
+    }
+
+    private static ServletWebRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/genres");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
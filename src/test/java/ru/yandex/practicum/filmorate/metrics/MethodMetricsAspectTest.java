@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.mpa.MpaService;
+import ru.yandex.practicum.filmorate.storage.EntityCacheBuilder;
+import ru.yandex.practicum.filmorate.storage.TableVersions;
+import ru.yandex.practicum.filmorate.storage.film.CachedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MethodMetricsAspectTest {
+    SimpleMeterRegistry registry;
+    MpaService mpaService;
+
+    @BeforeEach
+    public void beforeEach() {
+        registry = new SimpleMeterRegistry();
+        MpaStorage storage = mock(MpaStorage.class);
+        when(storage.getAll()).thenReturn(List.of(new Mpa(1, "G")));
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new MpaService(storage, new TableVersions()));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new MethodMetricsAspect(registry));
+        mpaService = factory.getProxy();
+    }
+
+    @Test
+    public void timeService_whenCalled_thenTimerPerMethodAndOutcome() {
+        mpaService.getMpaById(1);
+        mpaService.getMpaById(1);
+        assertThrows(NotFoundException.class, () -> mpaService.getMpaById(2));
+
+        assertEquals(2, registry.get(MethodMetricsAspect.SERVICE_TIMER)
+                .tags("class", "MpaService", "method", "getMpaById", "exception", "none")
+                .timer()
+                .count());
+        assertEquals(1, registry.get(MethodMetricsAspect.SERVICE_TIMER)
+                .tags("class", "MpaService", "method", "getMpaById", "exception", "NotFoundException")
+                .timer()
+                .count());
+        assertNull(registry.find(MethodMetricsAspect.SERVICE_TIMER).tag("method", "getAll").timer());
+    }
+
+    @Test
+    public void timeStorage_whenCachingDecoratorCalled_thenOnlyDbStorageTimed() {
+        FilmStorage delegate = mock(FilmStorage.class);
+        when(delegate.getFilmById(1)).thenReturn(Optional.empty());
+        EntityCacheBuilder cacheBuilder = new EntityCacheBuilder(registry, 100, Duration.ofMinutes(5),
+                Duration.ofMinutes(5));
+        AspectJProxyFactory factory = new AspectJProxyFactory(
+                new CachedFilmStorage(delegate, cacheBuilder, new TableVersions()));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new MethodMetricsAspect(registry));
+        CachedFilmStorage storage = factory.getProxy();
+
+        AspectJProxyFactory dbFactory = new AspectJProxyFactory(
+                new MpaDbStorage(mock(NamedParameterJdbcOperations.class), new FilmPopularityIndex()));
+        dbFactory.setProxyTargetClass(true);
+        dbFactory.addAspect(new MethodMetricsAspect(registry));
+        MpaDbStorage dbStorage = dbFactory.getProxy();
+
+        storage.getFilmById(1);
+        dbStorage.getAll();
+
+        assertNull(registry.find(MethodMetricsAspect.STORAGE_TIMER).tag("class", "CachedFilmStorage").timer());
+        assertEquals(1, registry.get(MethodMetricsAspect.STORAGE_TIMER)
+                .tags("class", "MpaDbStorage", "method", "getAll")
+                .timer()
+                .count());
+    }
+}
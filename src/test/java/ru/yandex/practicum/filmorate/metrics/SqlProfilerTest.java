@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.model.SqlExecution;
+import ru.yandex.practicum.filmorate.model.SqlProfile;
+import ru.yandex.practicum.filmorate.model.SqlStatementStats;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SqlProfilerTest {
+    EmbeddedDatabase database;
+    SqlProfiler profiler;
+    NamedParameterJdbcOperations operations;
+
+    @BeforeEach
+    public void beforeEach() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        profiler = new SqlProfiler(Duration.ZERO, 3);
+        operations = ProfilingJdbcProxy.wrap(new NamedParameterJdbcTemplate(database), profiler);
+        operations.getJdbcOperations().execute("CREATE TABLE viewers (viewer_id int PRIMARY KEY, email varchar(255))");
+    }
+
+    @AfterEach
+    public void afterEach() {
+        database.shutdown();
+    }
+
+    @Test
+    public void profile_whenQueriesExecuted_thenStatsPerStatementWithRowsAndRedactedParams() {
+        String insert = "INSERT INTO viewers (viewer_id, email) VALUES (:id, :email)";
+        operations.update(insert, new MapSqlParameterSource("id", 1).addValue("email", "secret@mail.ru"));
+        operations.update(insert, new MapSqlParameterSource("id", 2).addValue("email", "other@mail.ru"));
+        List<Integer> ids = operations.queryForList("SELECT viewer_id FROM viewers WHERE viewer_id IN (:ids)",
+                Map.of("ids", List.of(1, 2)), Integer.class);
+        operations.getJdbcOperations().query(con -> con.prepareStatement("SELECT * FROM viewers"), rs -> {
+        });
+
+        SqlProfile profile = profiler.profile(10);
+        Map<String, SqlStatementStats> stats = profile.getStatements().stream()
+                .collect(Collectors.toMap(SqlStatementStats::getSql, Function.identity()));
+
+        assertEquals(List.of(1, 2), ids);
+        assertEquals(2, stats.get(insert).getExecutions());
+        assertEquals(2, stats.get(insert).getRows());
+        assertEquals(2, stats.get("SELECT viewer_id FROM viewers WHERE viewer_id IN (:ids)").getRows());
+        assertEquals(2, stats.get("SELECT * FROM viewers").getRows());
+        assertThat(profile.getSlowest()).hasSize(3);
+        assertThat(profile.getSlowest()).extracting(SqlExecution::getParams)
+                .noneMatch(params -> params.contains("mail.ru"));
+    }
+
+    @Test
+    public void profile_whenConnectionCallbackUsed_thenSqlCapturedFromPreparedStatement() {
+        operations.getJdbcOperations().execute((ConnectionCallback<Integer>) con -> {
+            try (PreparedStatement ps = con.prepareStatement("INSERT INTO viewers (viewer_id, email) VALUES (?, ?)")) {
+                ps.setInt(1, 1);
+                ps.setString(2, "e");
+                return ps.executeUpdate();
+            }
+        });
+
+        assertThat(profiler.profile(10).getStatements()).extracting(SqlStatementStats::getSql)
+                .contains("INSERT INTO viewers (viewer_id, email) VALUES (?, ?)");
+    }
+
+    @Test
+    public void profile_whenStatementFails_thenExecutionRecordedAsError() {
+        String insert = "INSERT INTO viewers (viewer_id, email) VALUES (:id, :email)";
+        MapSqlParameterSource params = new MapSqlParameterSource("id", 1).addValue("email", "e");
+        operations.update(insert, params);
+
+        assertThrows(DuplicateKeyException.class, () -> operations.update(insert, params));
+
+        SqlStatementStats stats = profiler.profile(10).getStatements().get(0);
+        assertEquals(insert, stats.getSql());
+        assertEquals(2, stats.getExecutions());
+        assertEquals(1, stats.getErrors());
+        assertEquals(1, stats.getRows());
+        assertThat(profiler.profile(10).getSlowest()).extracting(SqlExecution::getRows).contains(-1L);
+    }
+
+    @Test
+    public void reset_whenCalled_thenStatsCleared() {
+        operations.queryForList("SELECT * FROM viewers", Map.of());
+
+        profiler.reset();
+
+        assertThat(profiler.profile(10).getStatements()).isEmpty();
+        assertThat(profiler.profile(10).getSlowest()).isEmpty();
+    }
+}
@@ -1,14 +1,19 @@
 package ru.yandex.practicum.filmorate.service.film;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidateException;
+import ru.yandex.practicum.filmorate.model.BulkImportReport;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.ValidationService;
+import ru.yandex.practicum.filmorate.service.genre.GenreService;
+import ru.yandex.practicum.filmorate.service.mpa.MpaService;
+import ru.yandex.practicum.filmorate.storage.TableVersions;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
@@ -17,11 +22,13 @@ import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 class FilmServiceTest {
@@ -37,7 +44,12 @@ class FilmServiceTest {
         userStorage = mock(UserStorage.class);
         mpaStorage = mock(MpaStorage.class);
         genreStorage = mock(GenreStorage.class);
-        filmService = new FilmService(storage, userStorage, mpaStorage, genreStorage, new ValidationService());
+        when(mpaStorage.getAll()).thenReturn(List.of(new Mpa(1, "test")));
+        when(genreStorage.getAll()).thenReturn(List.of(new Genre(1, "testGenre")));
+        TableVersions versions = new TableVersions();
+        filmService = new FilmService(storage, userStorage, new MpaService(mpaStorage, versions),
+                new GenreService(genreStorage, versions), new ValidationService(),
+                new LikeWriteBehindQueue(storage, new SimpleMeterRegistry(), false, 100), versions);
     }
 
     void assertEqualsFilm(Film o1, Film o2) {
@@ -134,7 +146,6 @@ class FilmServiceTest {
                 .duration(120)
                 .mpa(mpa)
                 .build();
-        when(mpaStorage.getMpaById(1)).thenReturn(Optional.of(mpa));
         when(storage.createFilm(film)).thenReturn(film);
 
         Film actualFilm = filmService.createFilm(film);
@@ -142,6 +153,25 @@ class FilmServiceTest {
         assertEqualsFilm(film, actualFilm);
     }
 
+    @Test
+    public void createFilm_whenGenreIsUnknown_thenThrowExceptionWithoutQueryingGenres() {
+        Film film = Film.builder()
+                .id(1)
+                .name("testFilm")
+                .description("test desc for film")
+                .releaseDate(LocalDate.of(2000, Month.JANUARY, 1))
+                .duration(120)
+                .mpa(new Mpa(1, "test"))
+                .genres(new LinkedHashSet<>(List.of(new Genre(1, "testGenre"), new Genre(7, "unknown"))))
+                .build();
+
+        Throwable throwable = assertThrows(NotFoundException.class, () -> filmService.createFilm(film));
+
+        assertEquals("Найдены не все жанры", throwable.getMessage());
+        verify(genreStorage, never()).getGenresById(anyList());
+        verify(storage, never()).createFilm(any());
+    }
+
     @Test
     public void createFilm_whenValidationWasNotSuccess_thenThrowException() {
         Film film = Film.builder()
@@ -174,7 +204,6 @@ class FilmServiceTest {
                 .email("email@ru")
                 .birthday(LocalDate.of(2000, 1, 1))
                 .build();
-        when(mpaStorage.getMpaById(1)).thenReturn(Optional.of(mpa));
         when(storage.createFilm(film)).thenReturn(film);
         filmService.createFilm(film);
         when(storage.getFilmById(film.getId())).thenReturn(Optional.of(film));
@@ -202,7 +231,6 @@ class FilmServiceTest {
                 .email("email@ru")
                 .birthday(LocalDate.of(2000, 1, 1))
                 .build();
-        when(mpaStorage.getMpaById(1)).thenReturn(Optional.of(mpa));
         when(storage.createFilm(film)).thenReturn(film);
         filmService.createFilm(film);
         when(storage.getFilmById(1)).thenReturn(Optional.of(film));
@@ -261,4 +289,43 @@ class FilmServiceTest {
         assertEquals(expectedList, actualList);
     }
 
-}
\ No newline at end of file
+    @Test
+    @SuppressWarnings("unchecked")
+    public void importFilms_whenSomeFilmsAreInvalid_thenSavedOnlyValidAndReportedEachItem() {
+        Mpa mpa = new Mpa(1, "test");
+        Film film = Film.builder()
+                .name("testFilm")
+                .description("test desc for film")
+                .releaseDate(LocalDate.of(2000, Month.JANUARY, 1))
+                .duration(120)
+                .mpa(mpa)
+                .build();
+        Film filmWithoutName = Film.builder()
+                .description("test desc for film")
+                .releaseDate(LocalDate.of(2000, Month.JANUARY, 1))
+                .duration(120)
+                .mpa(mpa)
+                .build();
+        Film filmWithUnknownMpa = Film.builder()
+                .name("thirdFilm")
+                .description("test desc for film")
+                .releaseDate(LocalDate.of(2000, Month.JANUARY, 1))
+                .duration(120)
+                .mpa(new Mpa(99, "unknown"))
+                .build();
+        when(storage.createFilms(anyList())).thenAnswer(invocation -> {
+            List<Film> films = invocation.getArgument(0);
+            films.get(0).setId(10);
+            return films;
+        });
+
+        BulkImportReport report = filmService.importFilms(List.of(filmWithoutName, film, filmWithUnknownMpa).iterator());
+
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals("Фильм не имеет названия", report.getItems().get(0).getError());
+        assertEquals(10, report.getItems().get(1).getId());
+        assertEquals("Такого рейтинга не существует", report.getItems().get(2).getError());
+        verify(storage, times(1)).createFilms(anyList());
+    }
+}
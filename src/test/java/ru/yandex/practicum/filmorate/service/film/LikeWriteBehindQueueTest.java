@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class LikeWriteBehindQueueTest {
+    FilmStorage storage;
+    MeterRegistry meterRegistry;
+    LikeWriteBehindQueue queue;
+
+    @BeforeEach
+    public void beforeEach() {
+        storage = mock(FilmStorage.class);
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new LikeWriteBehindQueue(storage, meterRegistry, true, 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flush_whenSameUserLikedAndUnlikedFilm_thenOnlyLastEventWritten() {
+        queue.submit(new LikeEvent(1, 1, true));
+        queue.submit(new LikeEvent(1, 1, false));
+        ArgumentCaptor<List<LikeEvent>> captor = ArgumentCaptor.forClass(List.class);
+
+        queue.flush();
+
+        verify(storage).applyLikes(captor.capture());
+        List<LikeEvent> written = captor.getValue();
+        assertEquals(1, written.size());
+        assertFalse(written.get(0).isLiked());
+        assertEquals(0, queue.size());
+        assertEquals(1, meterRegistry.get("filmorate.likes.flush").timer().count());
+    }
+
+    @Test
+    public void submit_whenCapacityReached_thenWaitsForScheduledFlush() throws InterruptedException {
+        queue.submit(new LikeEvent(1, 1, true));
+        queue.submit(new LikeEvent(2, 1, true));
+        queue.submit(new LikeEvent(3, 1, true));
+        Thread submitter = new Thread(() -> queue.submit(new LikeEvent(4, 1, true)));
+        submitter.start();
+        while (submitter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        queue.submit(new LikeEvent(2, 1, false));
+
+        verify(storage, never()).applyLikes(anyList());
+        assertEquals(3.0, meterRegistry.get("filmorate.likes.queue.depth").gauge().value());
+
+        queue.scheduledFlush();
+        submitter.join();
+
+        verify(storage).applyLikes(anyList());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void flush_whenBatchFails_thenEventsWrittenOneByOne() {
+        doThrow(new DataIntegrityViolationException("fk"))
+                .doNothing()
+                .doThrow(new DataIntegrityViolationException("fk"))
+                .when(storage).applyLikes(anyList());
+        queue.submit(new LikeEvent(1, 1, true));
+        queue.submit(new LikeEvent(2, 1, true));
+
+        queue.flush();
+
+        verify(storage, times(3)).applyLikes(anyList());
+    }
+}
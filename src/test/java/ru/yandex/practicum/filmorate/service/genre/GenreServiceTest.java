@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.service.genre;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.TableVersions;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class GenreServiceTest {
+    GenreStorage storage;
+    TableVersions versions;
+    GenreService genreService;
+
+    @BeforeEach
+    public void beforeEach() {
+        storage = mock(GenreStorage.class);
+        when(storage.getAll()).thenReturn(List.of(new Genre(2, "Драма"), new Genre(1, "Комедия")));
+        versions = new TableVersions();
+        genreService = new GenreService(storage, versions);
+    }
+
+    @Test
+    public void getAll_whenCalledRepeatedly_thenServedFromSnapshotOrderedById() {
+        genreService.getAll();
+        List<Genre> genres = genreService.getAll();
+
+        assertEquals(List.of(1, 2), List.of(genres.get(0).getId(), genres.get(1).getId()));
+        assertEquals("Драма", genreService.getGenreById(2).getName());
+        verify(storage, times(1)).getAll();
+        verify(storage, never()).getGenreById(anyInt());
+    }
+
+    @Test
+    public void updateGenre_whenCalled_thenSnapshotRebuilt() {
+        Genre updated = new Genre(2, "Триллер");
+        when(storage.getAll()).thenReturn(List.of(new Genre(1, "Комедия"), updated));
+
+        genreService.updateGenre(updated);
+
+        assertEquals("Триллер", genreService.getGenreById(2).getName());
+    }
+
+    @Test
+    public void getGenreById_whenGenreDeleted_thenThrowException() {
+        when(storage.getAll()).thenReturn(List.of(new Genre(1, "Комедия")));
+
+        genreService.deleteGenreById(2);
+
+        assertThrows(NotFoundException.class, () -> genreService.getGenreById(2));
+    }
+
+    @Test
+    public void getEtag_whenGenreUpdated_thenTagOfReloadedSnapshot() {
+        String before = genreService.getEtag();
+        doAnswer(invocation -> {
+            versions.bump(TableVersions.Table.GENRE);
+            return null;
+        }).when(storage).updateGenre(any());
+
+        genreService.updateGenre(new Genre(2, "Триллер"));
+
+        assertNotEquals(before, genreService.getEtag());
+        assertEquals(versions.etag(TableVersions.Table.GENRE), genreService.getEtag());
+    }
+}
@@ -2,10 +2,14 @@ package ru.yandex.practicum.filmorate.service.user;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidateException;
+import ru.yandex.practicum.filmorate.model.BulkImportReport;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.ValidationService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
@@ -13,11 +17,13 @@ import java.time.Month;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
 
 class UserServiceTest {
     UserStorage storage;
@@ -26,7 +32,7 @@ class UserServiceTest {
     @BeforeEach
     public void beforeEach() {
         storage = mock(UserStorage.class);
-        userService = new UserService(storage, new ValidationService());
+        userService = new UserService(storage, mock(FilmStorage.class), new ValidationService());
     }
 
     void assertEqualsUser(User o1, User o2) {
@@ -187,11 +193,128 @@ class UserServiceTest {
         userService.addFriend(user.getId(), secondUser.getId());
         List<User> expectedFriends = List.of(secondUser, thirdUser);
         when(storage.getUserFriends(user.getId())).thenReturn(List.of(secondUser.getId(), thirdUser.getId()));
+        when(storage.getFriends(user.getId(), 0, Integer.MAX_VALUE)).thenReturn(List.of(secondUser, thirdUser));
 
         List<User> actualList = userService.getUserFriends(user.getId());
 
         assertEquals(expectedFriends, actualList);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void importUsers_whenLoginOrEmailIsTaken_thenRejectOnlyDuplicates() {
+        User existing = User.builder()
+                .id(1)
+                .name("existing")
+                .email("taken@ya.ru")
+                .login("takenLogin")
+                .birthday(LocalDate.of(2000, Month.DECEMBER, 3))
+                .build();
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            consumer.accept(existing);
+            return null;
+        }).when(storage).streamUsers(any());
+        when(storage.createUsers(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.get(0).setId(2);
+            return users;
+        });
+        User newUser = User.builder()
+                .email("new@ya.ru")
+                .login("newLogin")
+                .birthday(LocalDate.of(2000, Month.DECEMBER, 3))
+                .build();
+        User sameEmail = User.builder()
+                .email("taken@ya.ru")
+                .login("otherLogin")
+                .birthday(LocalDate.of(2000, Month.DECEMBER, 3))
+                .build();
+        User sameLoginInBatch = User.builder()
+                .email("other@ya.ru")
+                .login("newLogin")
+                .birthday(LocalDate.of(2000, Month.DECEMBER, 3))
+                .build();
 
-}
\ No newline at end of file
+        BulkImportReport report = userService.importUsers(List.of(newUser, sameEmail, sameLoginInBatch).iterator());
+
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getItems().get(0).getId());
+        assertEquals("newLogin", newUser.getName());
+        assertEquals("Пользователь с такой почтой уже существует", report.getItems().get(1).getError());
+        assertEquals("Пользователь с таким логином уже существует", report.getItems().get(2).getError());
+    }
+
+    @Test
+    public void importFriendships_whenUserIsUnknown_thenRejectOnlyThatEdge() {
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            consumer.accept(User.builder().id(1).build());
+            consumer.accept(User.builder().id(2).build());
+            return null;
+        }).when(storage).streamUsers(any());
+        when(storage.addFriends(anyList())).thenReturn(1);
+
+        BulkImportReport report = userService.importFriendships(List.of(
+                new Friendship(1, 2),
+                new Friendship(1, 3),
+                new Friendship(2, 2)).iterator());
+
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals(1, report.getItems().get(0).getIndex());
+        assertEquals(2, report.getItems().get(1).getIndex());
+        verify(storage).addFriends(anyList());
+    }
+
+    @Test
+    public void importFriendships_whenEdgesAlreadyExist_thenReportThemSkipped() {
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            consumer.accept(User.builder().id(1).build());
+            consumer.accept(User.builder().id(2).build());
+            consumer.accept(User.builder().id(3).build());
+            return null;
+        }).when(storage).streamUsers(any());
+        when(storage.addFriends(anyList())).thenReturn(1);
+
+        BulkImportReport report = userService.importFriendships(List.of(
+                new Friendship(1, 2),
+                new Friendship(1, 3),
+                new Friendship(2, 3)).iterator());
+
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getSkipped());
+        assertEquals(0, report.getFailed());
+    }
+
+    @Test
+    public void importUsers_whenChunkFailed_thenItsEmailsAndLoginsCanBeReused() {
+        when(storage.createUsers(anyList()))
+                .thenThrow(new DataIntegrityViolationException("chunk failed"))
+                .thenAnswer(invocation -> {
+                    List<User> users = invocation.getArgument(0);
+                    users.forEach(user -> user.setId(1));
+                    return users;
+                });
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            users.add(User.builder()
+                    .email("user" + i + "@ya.ru")
+                    .login("login" + i)
+                    .birthday(LocalDate.of(2000, Month.DECEMBER, 3))
+                    .build());
+        }
+        users.add(User.builder()
+                .email("user0@ya.ru")
+                .login("login0")
+                .birthday(LocalDate.of(2000, Month.DECEMBER, 3))
+                .build());
+
+        BulkImportReport report = userService.importUsers(users.iterator());
+
+        assertEquals(1, report.getImported());
+        assertEquals(5000, report.getFailed());
+        assertEquals(1, report.getItems().get(5000).getId());
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TableVersionsTest {
+    TableVersions versions;
+
+    @BeforeEach
+    public void beforeEach() {
+        versions = new TableVersions();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void bump_whenNoTransaction_thenOnlyTagsOfBumpedTablesChange() {
+        String films = versions.etag(TableVersions.Table.FILMS, TableVersions.Table.LIKES);
+        String genres = versions.etag(TableVersions.Table.GENRE);
+
+        versions.bump(TableVersions.Table.LIKES);
+
+        assertNotEquals(films, versions.etag(TableVersions.Table.FILMS, TableVersions.Table.LIKES));
+        assertEquals(genres, versions.etag(TableVersions.Table.GENRE));
+        assertEquals(1, versions.get(TableVersions.Table.LIKES));
+    }
+
+    @Test
+    public void bump_whenTransactionActive_thenVersionChangesAfterCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        versions.bump(TableVersions.Table.FILMS);
+
+        assertEquals(0, versions.get(TableVersions.Table.FILMS));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(1, versions.get(TableVersions.Table.FILMS));
+    }
+
+    @Test
+    public void modifiesTables_whenStorageWriteFails_thenVersionsBumped() {
+        NamedParameterJdbcOperations operations = mock(NamedParameterJdbcOperations.class);
+        when(operations.update(anyString(), any(SqlParameterSource.class)))
+                .thenThrow(new DataIntegrityViolationException("fk"));
+        AspectJProxyFactory factory = new AspectJProxyFactory(new MpaDbStorage(operations, new FilmPopularityIndex()));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new TableVersionsAspect(versions));
+        MpaDbStorage storage = factory.getProxy();
+
+        assertThrows(DataIntegrityViolationException.class, () -> storage.deleteMpaById(1));
+        storage.getAll();
+
+        assertEquals(1, versions.get(TableVersions.Table.RATING_MPA));
+        assertEquals(1, versions.get(TableVersions.Table.FILMS));
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCacheBuilder;
+import ru.yandex.practicum.filmorate.storage.TableVersions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
+
+class CachedFilmStorageTest {
+    FilmStorage delegate;
+    SimpleMeterRegistry meterRegistry;
+    TableVersions versions;
+    CachedFilmStorage storage;
+    Film film;
+
+    @BeforeEach
+    public void beforeEach() {
+        delegate = mock(FilmStorage.class);
+        meterRegistry = new SimpleMeterRegistry();
+        EntityCacheBuilder cacheBuilder = new EntityCacheBuilder(meterRegistry, 100,
+                Duration.ofMinutes(5), Duration.ofMinutes(5));
+        versions = new TableVersions();
+        storage = new CachedFilmStorage(delegate, cacheBuilder, versions);
+        film = Film.builder().id(1).name("film").build();
+        when(delegate.getFilmById(1)).thenReturn(Optional.of(film));
+    }
+
+    @Test
+    public void getFilmById_whenCalledTwice_thenDelegateQueriedOnce() {
+        Film first = storage.getFilmById(1).get();
+        Film second = storage.getFilmById(1).get();
+
+        assertSame(first, second);
+        verify(delegate, times(1)).getFilmById(1);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "films")
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    public void getFilmById_whenFilmIsMissing_thenMissCachedUntilCreate() {
+        when(delegate.getFilmById(2)).thenReturn(Optional.empty());
+        Film created = Film.builder().id(2).build();
+        when(delegate.createFilm(created)).thenReturn(created);
+
+        assertFalse(storage.getFilmById(2).isPresent());
+        assertFalse(storage.getFilmById(2).isPresent());
+        verify(delegate, times(1)).getFilmById(2);
+
+        storage.createFilm(created);
+        storage.getFilmById(2);
+
+        verify(delegate, times(2)).getFilmById(2);
+    }
+
+    @Test
+    public void getFilmById_whenFilmChanged_thenReloaded() {
+        User user = User.builder().id(1).build();
+
+        storage.getFilmById(1);
+        storage.updateFilm(film);
+        storage.getFilmById(1);
+        storage.addLike(film, user);
+        storage.getFilmById(1);
+        storage.applyLikes(List.of(new LikeEvent(1, 1, false)));
+        storage.getFilmById(1);
+        storage.deleteFilm(1);
+        storage.getFilmById(1);
+
+        verify(delegate, times(5)).getFilmById(1);
+    }
+
+    @Test
+    public void getFilmById_whenGenresOrMpaChanged_thenReloaded() {
+        storage.getFilmById(1);
+        versions.bump(TableVersions.Table.LIKES);
+        storage.getFilmById(1);
+        versions.bump(TableVersions.Table.GENRE, TableVersions.Table.FILM_GENRE);
+        storage.getFilmById(1);
+        versions.bump(TableVersions.Table.RATING_MPA, TableVersions.Table.FILMS);
+        storage.getFilmById(1);
+
+        verify(delegate, times(3)).getFilmById(1);
+    }
+
+    @Test
+    public void getFilmById_whenInvalidatedDuringLoad_thenLoadedValueNotCached() {
+        when(delegate.getFilmById(1)).thenAnswer(invocation -> {
+            storage.updateFilm(film);
+            return Optional.of(film);
+        }).thenReturn(Optional.of(film));
+
+        assertSame(film, storage.getFilmById(1).get());
+        storage.getFilmById(1);
+        storage.getFilmById(1);
+
+        verify(delegate, times(2)).getFilmById(1);
+    }
+}
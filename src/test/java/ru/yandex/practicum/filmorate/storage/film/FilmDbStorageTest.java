@@ -6,13 +6,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendSuggestions;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -20,16 +31,22 @@ import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 
 @JdbcTest
-@Import(FilmDbStorage.class)
+@Import({FilmDbStorage.class, FilmPopularityIndex.class, PopularityIndexChecker.class, LikeIndex.class,
+        FilmSimilarityIndex.class, FilmSearchIndex.class, UserDbStorage.class, FriendGraphIndex.class, FriendSuggestions.class})
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 class FilmDbStorageTest {
 
     private final FilmDbStorage filmDbStorage;
+    private final UserDbStorage userDbStorage;
+    private final PopularityIndexChecker popularityIndexChecker;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
 
     @Test
     public void createFilm_whenFilmIsCorrectAndHasGenres_saveAndReturnFilmWithGenres() {
@@ -258,4 +275,495 @@ class FilmDbStorageTest {
 
         assertThat(filmOptional).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getPopularFilms_whenCountIsLessThanFilmsCount_returnFilmsWithOnlyTheirGenres() {
+        Mpa mpa = new Mpa(1, "G");
+        Genre comedy = Genre.builder().id(1).name("Комедия").build();
+        Genre drama = Genre.builder().id(2).name("Драма").build();
+        Film firstFilm = filmDbStorage.createFilm(Film.builder()
+                .name("niceName")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .genres(new HashSet<>(Set.of(comedy)))
+                .mpa(mpa)
+                .build());
+        filmDbStorage.createFilm(Film.builder()
+                .name("secondFilm")
+                .description("second film desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .genres(new HashSet<>(Set.of(drama)))
+                .mpa(mpa)
+                .build());
+
+        List<Film> films = filmDbStorage.getPopularFilms(1);
+
+        assertEquals(1, films.size());
+        assertEquals(firstFilm.getId(), films.get(0).getId());
+        assertThat(films.get(0).getGenres()).containsExactly(comedy);
+    }
+
+    @Test
+    public void getFilmsPage_whenAfterAndLimitGiven_returnNextPageWithGenres() {
+        Mpa mpa = new Mpa(1, "G");
+        Genre comedy = Genre.builder().id(1).name("Комедия").build();
+        Film firstFilm = filmDbStorage.createFilm(Film.builder()
+                .name("niceName")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        Film secondFilm = filmDbStorage.createFilm(Film.builder()
+                .name("secondFilm")
+                .description("second film desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .genres(new HashSet<>(Set.of(comedy)))
+                .mpa(mpa)
+                .build());
+        filmDbStorage.createFilm(Film.builder()
+                .name("thirdFilm")
+                .description("third film desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+
+        List<Film> films = filmDbStorage.getFilms(firstFilm.getId(), 1);
+
+        assertEquals(1, films.size());
+        assertEquals(secondFilm.getId(), films.get(0).getId());
+        assertThat(films.get(0).getGenres()).containsExactly(comedy);
+    }
+
+    @Test
+    public void streamFilms_whenStorageHasFilms_passEachFilmWithItsGenresInIdOrder() {
+        Mpa mpa = new Mpa(1, "G");
+        Genre comedy = Genre.builder().id(1).name("Комедия").build();
+        Genre drama = Genre.builder().id(2).name("Драма").build();
+        Film firstFilm = filmDbStorage.createFilm(Film.builder()
+                .name("niceName")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .genres(new HashSet<>(Set.of(comedy, drama)))
+                .mpa(mpa)
+                .build());
+        Film secondFilm = filmDbStorage.createFilm(Film.builder()
+                .name("secondFilm")
+                .description("second film desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        List<Film> streamed = new ArrayList<>();
+
+        filmDbStorage.streamFilms(streamed::add);
+
+        assertEquals(2, streamed.size());
+        assertEquals(firstFilm.getId(), streamed.get(0).getId());
+        assertThat(streamed.get(0).getGenres()).containsExactly(comedy, drama);
+        assertEquals(secondFilm.getId(), streamed.get(1).getId());
+        assertThat(streamed.get(1).getGenres()).isEmpty();
+    }
+
+    @Test
+    public void streamFilms_whenGenresWereSavedOutOfOrder_passGenresInIdOrder() {
+        Mpa mpa = new Mpa(1, "G");
+        Film film = filmDbStorage.createFilm(Film.builder()
+                .name("niceName")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        for (int genreId : new int[]{6, 2, 4, 1}) {
+            jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", film.getId(), genreId);
+        }
+        List<Film> streamed = new ArrayList<>();
+
+        filmDbStorage.streamFilms(streamed::add);
+
+        assertEquals(1, streamed.size());
+        assertThat(streamed.get(0).getGenres()).extracting(Genre::getId).containsExactly(1, 2, 4, 6);
+    }
+
+    @Test
+    public void getPopularFilms_whenFilmsWereLikedAndUnliked_returnFilmsOrderedByLikes() {
+        Mpa mpa = new Mpa(1, "G");
+        Film firstFilm = filmDbStorage.createFilm(Film.builder()
+                .name("niceName")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        Film secondFilm = filmDbStorage.createFilm(Film.builder()
+                .name("secondFilm")
+                .description("second film desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        Film thirdFilm = filmDbStorage.createFilm(Film.builder()
+                .name("thirdFilm")
+                .description("third film desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        User user = userDbStorage.createUser(User.builder()
+                .login("likeOleg1")
+                .email("likeOleg1@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("likeOleg2")
+                .email("likeOleg2@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        filmDbStorage.addLike(thirdFilm, user);
+        filmDbStorage.addLike(thirdFilm, secondUser);
+        filmDbStorage.addLike(thirdFilm, secondUser);
+        filmDbStorage.addLike(secondFilm, user);
+        filmDbStorage.addLike(firstFilm, user);
+        filmDbStorage.deleteLike(firstFilm, user);
+
+        List<Film> films = filmDbStorage.getPopularFilms(3);
+
+        assertEquals(thirdFilm.getId(), films.get(0).getId());
+        assertEquals(secondFilm.getId(), films.get(1).getId());
+        assertEquals(firstFilm.getId(), films.get(2).getId());
+        assertThat(popularityIndexChecker.findMismatches()).isEmpty();
+    }
+
+    @Test
+    public void getPopularFilms_whenFiltersGiven_returnOnlyMatchingFilmsOrderedByLikes() {
+        Genre comedy = new Genre(1, "Комедия");
+        Genre drama = new Genre(2, "Драма");
+        Film comedyOf2023 = filmDbStorage.createFilm(Film.builder()
+                .name("comedyOf2023")
+                .description("first desc")
+                .releaseDate(LocalDate.of(2023, Month.MARCH, 25))
+                .duration(100)
+                .mpa(new Mpa(1, "G"))
+                .genres(Set.of(comedy))
+                .build());
+        Film dramaOf2023 = filmDbStorage.createFilm(Film.builder()
+                .name("dramaOf2023")
+                .description("second desc")
+                .releaseDate(LocalDate.of(2023, Month.APRIL, 1))
+                .duration(100)
+                .mpa(new Mpa(2, "PG"))
+                .genres(Set.of(drama))
+                .build());
+        Film comedyOf1999 = filmDbStorage.createFilm(Film.builder()
+                .name("comedyOf1999")
+                .description("third desc")
+                .releaseDate(LocalDate.of(1999, Month.MAY, 1))
+                .duration(100)
+                .mpa(new Mpa(2, "PG"))
+                .genres(Set.of(comedy, drama))
+                .build());
+        User user = userDbStorage.createUser(User.builder()
+                .login("likeOleg1")
+                .email("likeOleg1@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        filmDbStorage.addLike(comedyOf1999, user);
+
+        assertThat(filmDbStorage.getPopularFilms(10, comedy.getId(), null, null))
+                .extracting(Film::getId)
+                .containsExactly(comedyOf1999.getId(), comedyOf2023.getId());
+        assertThat(filmDbStorage.getPopularFilms(10, comedy.getId(), 2023, null))
+                .extracting(Film::getId)
+                .containsExactly(comedyOf2023.getId());
+        assertThat(filmDbStorage.getPopularFilms(10, null, null, 2))
+                .extracting(Film::getId)
+                .containsExactly(comedyOf1999.getId(), dramaOf2023.getId());
+
+        comedyOf1999.setGenres(Set.of(drama));
+        filmDbStorage.updateFilm(comedyOf1999);
+
+        assertThat(filmDbStorage.getPopularFilms(10, comedy.getId(), null, null))
+                .extracting(Film::getId)
+                .containsExactly(comedyOf2023.getId());
+
+        filmDbStorage.rebuildPopularityIndex();
+
+        assertThat(filmDbStorage.getPopularFilms(10, drama.getId(), null, null))
+                .extracting(Film::getId)
+                .containsExactly(comedyOf1999.getId(), dramaOf2023.getId());
+    }
+
+    @Test
+    public void deleteLikesByUser_whenUserLikedFilms_removeLikesFromPopularity() {
+        Mpa mpa = new Mpa(1, "G");
+        Film firstFilm = filmDbStorage.createFilm(Film.builder()
+                .name("niceName")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        Film secondFilm = filmDbStorage.createFilm(Film.builder()
+                .name("secondFilm")
+                .description("second film desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        User user = userDbStorage.createUser(User.builder()
+                .login("likeOleg3")
+                .email("likeOleg3@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        filmDbStorage.addLike(secondFilm, user);
+
+        filmDbStorage.deleteLikesByUser(user.getId());
+        List<Film> films = filmDbStorage.getPopularFilms(2);
+
+        assertEquals(firstFilm.getId(), films.get(0).getId());
+        assertEquals(0, films.get(1).getRate());
+        assertThat(popularityIndexChecker.findMismatches()).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void applyLikes_whenBatchHasDuplicatesAndRemovals_applyOnlyEffectiveChanges() {
+        Mpa mpa = new Mpa(1, "G");
+        Film firstFilm = filmDbStorage.createFilm(Film.builder()
+                .name("niceName")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        Film secondFilm = filmDbStorage.createFilm(Film.builder()
+                .name("secondFilm")
+                .description("second film desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+        User user = userDbStorage.createUser(User.builder()
+                .login("likeOleg4")
+                .email("likeOleg4@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("likeOleg5")
+                .email("likeOleg5@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        filmDbStorage.addLike(firstFilm, user);
+
+        filmDbStorage.applyLikes(List.of(
+                new LikeEvent(firstFilm.getId(), user.getId(), true),
+                new LikeEvent(secondFilm.getId(), user.getId(), true),
+                new LikeEvent(secondFilm.getId(), secondUser.getId(), true),
+                new LikeEvent(firstFilm.getId(), secondUser.getId(), false)));
+        List<Film> films = filmDbStorage.getPopularFilms(2);
+
+        assertEquals(secondFilm.getId(), films.get(0).getId());
+        assertEquals(2, films.get(0).getRate());
+        assertEquals(1, films.get(1).getRate());
+        assertThat(popularityIndexChecker.findMismatches()).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void applyLikes_whenOuterTransactionRolledBack_leaveIndexesUnchanged() {
+        Film film = filmDbStorage.createFilm(Film.builder()
+                .name("niceName")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(new Mpa(1, "G"))
+                .build());
+        User user = userDbStorage.createUser(User.builder()
+                .login("likeOleg6")
+                .email("likeOleg6@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    filmDbStorage.applyLikes(List.of(new LikeEvent(film.getId(), user.getId(), true)));
+                    throw new IllegalStateException();
+                }));
+
+        assertEquals(0, filmDbStorage.getPopularFilms(1).get(0).getRate());
+        assertThat(popularityIndexChecker.findMismatches()).isEmpty();
+        assertThat(filmDbStorage.getRecommendedFilms(user.getId(), 10)).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void createFilms_whenBatchIsCorrect_saveFilmsWithIdsAndGenres() {
+        Mpa mpa = new Mpa(1, "G");
+        Genre comedy = Genre.builder().id(1).name("Комедия").build();
+        Genre drama = Genre.builder().id(2).name("Драма").build();
+        List<Film> films = List.of(Film.builder()
+                        .name("niceName")
+                        .description("its desc")
+                        .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                        .duration(100)
+                        .genres(new HashSet<>(Set.of(comedy, drama)))
+                        .mpa(mpa)
+                        .build(),
+                Film.builder()
+                        .name("secondFilm")
+                        .description("second film desc")
+                        .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                        .duration(100)
+                        .mpa(mpa)
+                        .build());
+
+        filmDbStorage.createFilms(films);
+        Optional<Film> firstFilm = filmDbStorage.getFilmById(films.get(0).getId());
+        Optional<Film> secondFilm = filmDbStorage.getFilmById(films.get(1).getId());
+
+        assertThat(firstFilm)
+                .isPresent()
+                .hasValueSatisfying(film -> assertThat(film.getGenres()).containsExactly(comedy, drama));
+        assertThat(secondFilm)
+                .isPresent()
+                .hasValueSatisfying(film -> assertThat(film).hasFieldOrPropertyWithValue("name", "secondFilm"));
+        assertEquals(2, filmDbStorage.getPopularFilms(10).size());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void createFilms_whenOuterTransactionRolledBack_leaveIndexesUnchanged() {
+        List<Film> films = List.of(Film.builder()
+                .name("rolledBack")
+                .description("its desc")
+                .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                .duration(100)
+                .mpa(new Mpa(1, "G"))
+                .build());
+
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    filmDbStorage.createFilms(films);
+                    throw new IllegalStateException();
+                }));
+
+        assertThat(filmDbStorage.getPopularFilms(10)).isEmpty();
+        assertThat(filmDbStorage.searchFilms("rolledBack", 10)).isEmpty();
+        assertThat(popularityIndexChecker.findMismatches()).isEmpty();
+    }
+
+    @Test
+    public void getRecommendedFilms_whenLikesChanged_returnCoLikedFilmsNotLikedByUser() {
+        Mpa mpa = new Mpa(1, "G");
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            films.add(filmDbStorage.createFilm(Film.builder()
+                    .name("recommended" + i)
+                    .description("its desc")
+                    .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                    .duration(100)
+                    .mpa(mpa)
+                    .build()));
+        }
+        User user = userDbStorage.createUser(User.builder()
+                .login("recommendOleg1")
+                .email("recommendOleg1@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("recommendOleg2")
+                .email("recommendOleg2@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        filmDbStorage.addLike(films.get(0), user);
+        filmDbStorage.addLike(films.get(0), secondUser);
+        filmDbStorage.addLike(films.get(1), secondUser);
+        filmDbStorage.applyLikes(List.of(new LikeEvent(films.get(2).getId(), secondUser.getId(), true)));
+
+        filmDbStorage.rebuildLikeIndex();
+        List<Film> recommended = filmDbStorage.getRecommendedFilms(user.getId(), 10);
+
+        assertThat(recommended).extracting(Film::getId).containsExactly(films.get(1).getId(), films.get(2).getId());
+
+        filmDbStorage.deleteLike(films.get(0), secondUser);
+
+        assertThat(filmDbStorage.getRecommendedFilms(user.getId(), 10)).isEmpty();
+    }
+
+    @Test
+    public void getSimilarFilms_whenLikesChanged_returnFilmsWithOverlappingLikers() {
+        Mpa mpa = new Mpa(1, "G");
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            films.add(filmDbStorage.createFilm(Film.builder()
+                    .name("similar" + i)
+                    .description("its desc")
+                    .releaseDate(LocalDate.of(1967, Month.MARCH, 25))
+                    .duration(100)
+                    .mpa(mpa)
+                    .build()));
+        }
+        User user = userDbStorage.createUser(User.builder()
+                .login("similarOleg1")
+                .email("similarOleg1@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        filmDbStorage.addLike(films.get(0), user);
+        filmDbStorage.addLike(films.get(1), user);
+
+        assertThat(filmDbStorage.getSimilarFilms(films.get(0).getId(), 10))
+                .extracting(Film::getId)
+                .containsExactly(films.get(1).getId());
+
+        filmDbStorage.deleteLike(films.get(1), user);
+
+        assertThat(filmDbStorage.getSimilarFilms(films.get(0).getId(), 10)).isEmpty();
+    }
+
+    @Test
+    public void searchFilms_whenFilmCreatedUpdatedAndDeleted_keepIndexInSync() {
+        Mpa mpa = new Mpa(1, "G");
+        Film film = filmDbStorage.createFilm(Film.builder()
+                .name("Ёлки")
+                .description("новогодняя комедия")
+                .releaseDate(LocalDate.of(2010, Month.DECEMBER, 16))
+                .duration(90)
+                .mpa(mpa)
+                .build());
+        Film secondFilm = filmDbStorage.createFilm(Film.builder()
+                .name("Brother")
+                .description("crime drama")
+                .releaseDate(LocalDate.of(1997, Month.MAY, 17))
+                .duration(100)
+                .mpa(mpa)
+                .build());
+
+        filmDbStorage.rebuildSearchIndex();
+        assertThat(filmDbStorage.searchFilms("елки комедии", 10)).extracting(Film::getId)
+                .containsExactly(film.getId());
+
+        secondFilm.setDescription("crime comedies");
+        filmDbStorage.updateFilm(secondFilm);
+        assertThat(filmDbStorage.searchFilms("comedy", 10)).extracting(Film::getId)
+                .containsExactly(secondFilm.getId());
+
+        filmDbStorage.deleteFilm(secondFilm.getId());
+        assertThat(filmDbStorage.searchFilms("crime", 10)).isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmPopularityIndexTest {
+    FilmPopularityIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new FilmPopularityIndex();
+        index.rebuild(Map.of(1, 0, 2, 5, 3, 2), Map.of(
+                1, new FilmPopularityIndex.Attributes(2023, 1, new int[]{1}),
+                2, new FilmPopularityIndex.Attributes(1999, 2, new int[]{1, 2}),
+                3, new FilmPopularityIndex.Attributes(2023, 2, new int[]{2})));
+    }
+
+    @Test
+    public void top_whenCalled_thenReturnedFilmIdsOrderedByLikesThenById() {
+        index.addFilm(4, new FilmPopularityIndex.Attributes(2023, 1, new int[0]));
+
+        List<Integer> top = index.top(10);
+
+        assertEquals(List.of(2, 3, 1, 4), top);
+    }
+
+    @Test
+    public void top_whenCountIsLessThanFilms_thenReturnedOnlyCountIds() {
+        List<Integer> top = index.top(2);
+
+        assertEquals(List.of(2, 3), top);
+    }
+
+    @Test
+    public void changeLikes_whenFilmOvertakesOthers_thenMovedToTop() {
+        index.changeLikes(1, 6);
+        index.changeLikes(2, -1);
+
+        List<Integer> top = index.top(3);
+
+        assertEquals(List.of(1, 2, 3), top);
+        assertEquals(Map.of(1, 6, 2, 4, 3, 2), index.snapshot());
+    }
+
+    @Test
+    public void removeFilm_whenCalled_thenFilmIsNotRanked() {
+        index.removeFilm(2);
+        index.changeLikes(2, 1);
+
+        List<Integer> top = index.top(10);
+
+        assertEquals(List.of(3, 1), top);
+    }
+
+    @Test
+    public void resetLikes_whenCalled_thenAllFilmsHaveZeroLikes() {
+        index.resetLikes();
+
+        List<Integer> top = index.top(10);
+
+        assertEquals(List.of(1, 2, 3), top);
+        assertEquals(Map.of(1, 0, 2, 0, 3, 0), index.snapshot());
+    }
+
+    @Test
+    public void top_whenFiltersGiven_thenReturnedOnlyMatchingFilmIds() {
+        assertEquals(List.of(2, 1), index.top(10, 1, null, null));
+        assertEquals(List.of(3, 1), index.top(10, null, 2023, null));
+        assertEquals(List.of(3), index.top(10, 2, 2023, 2));
+        assertEquals(List.of(), index.top(10, 3, null, null));
+    }
+
+    @Test
+    public void top_whenRareGenreFilteredWithPopularYear_thenMatchesFoundInGenreRanking() {
+        for (int filmId = 10; filmId < 110; filmId++) {
+            index.addFilm(filmId, new FilmPopularityIndex.Attributes(2023, 1, new int[]{1}));
+        }
+        index.addFilm(200, new FilmPopularityIndex.Attributes(2023, 1, new int[]{7}));
+        index.addFilm(201, new FilmPopularityIndex.Attributes(1999, 1, new int[]{7}));
+        index.changeLikes(201, 1);
+
+        assertEquals(List.of(200), index.top(1, 7, 2023, null));
+        assertEquals(List.of(201, 200), index.top(10, 7, null, 1));
+    }
+
+    @Test
+    public void changeLikes_whenFilmIsInFilteredRanking_thenFilteredOrderChanges() {
+        index.changeLikes(1, 3);
+
+        assertEquals(List.of(1, 3), index.top(10, null, 2023, null));
+        assertEquals(List.of(2, 1), index.top(10, 1, null, null));
+    }
+
+    @Test
+    public void updateFilm_whenGenresChanged_thenFilmMovesBetweenGenreRankings() {
+        index.updateFilm(2, new FilmPopularityIndex.Attributes(1999, 2, new int[]{2, 3}));
+
+        assertEquals(List.of(1), index.top(10, 1, null, null));
+        assertEquals(List.of(2, 3), index.top(10, 2, null, null));
+        assertEquals(List.of(2), index.top(10, 3, null, null));
+
+        index.changeLikes(3, 4);
+
+        assertEquals(List.of(3, 2), index.top(10, 2, null, null));
+    }
+
+    @Test
+    public void removeFilm_whenCalled_thenFilmIsNotRankedInFilters() {
+        index.removeFilm(2);
+
+        assertEquals(List.of(1), index.top(10, 1, null, null));
+        assertEquals(List.of(), index.top(10, null, 1999, null));
+    }
+
+    @Test
+    public void removeGenre_whenCalled_thenFilmsLeaveGenreRankingAndKeepOthers() {
+        index.removeGenre(1);
+
+        assertEquals(List.of(), index.top(10, 1, null, null));
+        assertEquals(List.of(2, 3), index.top(10, 2, null, null));
+        assertEquals(List.of(2, 3, 1), index.top(10));
+
+        index.changeLikes(1, 1);
+
+        assertEquals(List.of(), index.top(10, 1, null, null));
+    }
+
+    @Test
+    public void removeMpa_whenCalled_thenFilmsLeaveMpaRanking() {
+        index.removeMpa(2);
+
+        assertEquals(List.of(), index.top(10, null, null, 2));
+        assertEquals(List.of(1), index.top(10, null, null, 1));
+        assertEquals(List.of(3, 1), index.top(10, null, 2023, null));
+    }
+}
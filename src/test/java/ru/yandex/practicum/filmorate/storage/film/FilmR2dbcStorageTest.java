@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilmR2dbcStorageTest {
+    HikariDataSource dataSource;
+    JdbcTemplate jdbc;
+    FilmPopularityIndex popularityIndex;
+    FilmR2dbcStorage storage;
+
+    @BeforeEach
+    public void beforeEach() {
+        String url = "mem:r2dbc-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:" + url);
+        dataSource.setUsername("sa");
+        ResourceDatabasePopulator populator =
+                new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        for (int id = 1; id <= 3; id++) {
+            jdbc.update("INSERT INTO films (film_id, film_name, description, release_date, duration_in_minutes, " +
+                    "likes_count, rating_MPA_id) VALUES (?, ?, 'description', '2000-01-01 00:00:00', 100, ?, 1)",
+                    id, "film" + id, id);
+        }
+        jdbc.update("INSERT INTO film_genre (film_id, genre_id) VALUES (1, 2), (1, 1), (3, 4)");
+
+        popularityIndex = new FilmPopularityIndex();
+        storage = new FilmR2dbcStorage(
+                new H2ConnectionFactory(H2ConnectionConfiguration.builder().url(url).username("sa").build()),
+                popularityIndex);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        dataSource.close();
+    }
+
+    @Test
+    public void getFilms_whenFilmsHaveGenres_thenOneFilmPerIdWithSortedGenres() {
+        List<Film> films = storage.getFilms().collectList().block();
+
+        assertEquals(List.of(1, 2, 3), films.stream().map(Film::getId).collect(Collectors.toList()));
+        assertEquals(List.of(1, 2), films.get(0).getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertEquals(0, films.get(1).getGenres().size());
+        assertEquals("Триллер", films.get(2).getGenres().iterator().next().getName());
+        assertEquals("G", films.get(0).getMpa().getName());
+        assertEquals(LocalDate.of(2000, 1, 1), films.get(0).getReleaseDate());
+        assertEquals(3, films.get(2).getRate());
+    }
+
+    @Test
+    public void getFilms_whenPageRequested_thenFilmsAfterIdWithAllGenres() {
+        List<Film> page = storage.getFilms(0, 1).collectList().block();
+
+        assertEquals(1, page.size());
+        assertEquals(2, page.get(0).getGenres().size());
+        assertEquals(List.of(3), storage.getFilms(2, 10).map(Film::getId).collectList().block());
+    }
+
+    @Test
+    public void getFilms_whenSubscribed_thenRowsReadOffCallerThread() {
+        String thread = storage.getFilms().map(film -> Thread.currentThread().getName()).blockFirst();
+
+        assertTrue(thread.startsWith("boundedElastic"), thread);
+    }
+
+    @Test
+    public void getFilmById_whenMissing_thenEmpty() {
+        assertEquals("film2", storage.getFilmById(2).block().getName());
+        assertNull(storage.getFilmById(42).block());
+    }
+
+    @Test
+    public void getPopularFilms_whenIndexBuilt_thenIndexOrderAndFilters() {
+        FilmPopularityIndex.Attributes attributes = new FilmPopularityIndex.Attributes(2000, 1, new int[]{});
+        popularityIndex.rebuild(Map.of(1, 5, 2, 10, 3, 1), Map.of(1, new FilmPopularityIndex.Attributes(2000, 1,
+                new int[]{1, 2}), 2, attributes, 3, new FilmPopularityIndex.Attributes(2000, 1, new int[]{4})));
+
+        assertEquals(List.of(2, 1), storage.getPopularFilms(2, null, null, null)
+                .map(Film::getId).collectList().block());
+        assertEquals(List.of(3), storage.getPopularFilms(10, 4, null, null)
+                .map(Film::getId).collectList().block());
+    }
+}
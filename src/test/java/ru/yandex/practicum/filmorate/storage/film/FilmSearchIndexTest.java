@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmSearchIndexTest {
+    FilmSearchIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new FilmSearchIndex();
+        index.index(1, "Иван Васильевич меняет профессию", "Комедия о машине времени");
+        index.index(2, "Операция «Ы»", "Три новеллы, комедии Гайдая");
+        index.index(3, "Back to the Future", "A teenager travels back in time in a time machine");
+        index.index(4, "Time Bandits", "Fantasy adventure");
+    }
+
+    @Test
+    public void tokenize_whenTextHasRussianAndEnglishWords_thenTermsNormalizedAndStemmed() {
+        assertEquals(List.of("елк", "комед", "machine", "travel"),
+                SearchTokenizer.tokenize("Ёлки, КОМЕДИЯ! machines travels"));
+        assertEquals(List.of("comedy", "bus", "class"), SearchTokenizer.tokenize("comedies bus classes"));
+    }
+
+    @Test
+    public void search_whenWordFormsDiffer_thenFilmsFound() {
+        assertEquals(List.of(2, 1), index.search("комедия", 10));
+        assertEquals(List.of(1), index.search("машины времени", 10));
+    }
+
+    @Test
+    public void search_whenTermIsInName_thenRankedAboveDescriptionMatches() {
+        assertEquals(List.of(4, 3), index.search("time", 10));
+        assertEquals(List.of(4), index.search("time", 1));
+        assertEquals(List.of(3), index.search("time machine", 1));
+    }
+
+    @Test
+    public void search_whenFilmUpdatedOrRemoved_thenIndexUpdated() {
+        index.index(4, "Time Bandits", "Комедия");
+        index.removeFilm(2);
+
+        assertEquals(List.of(4, 1), index.search("комедия", 10));
+        assertEquals(List.of(), index.search("гайдая", 10));
+        assertEquals(List.of(), index.search("???", 10));
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmSimilarityIndexTest {
+    LikeIndex likeIndex;
+    FilmSimilarityIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        likeIndex = new LikeIndex();
+        index = new FilmSimilarityIndex(likeIndex);
+    }
+
+    void rebuild(Map<Integer, RoaringBitmap> likers) {
+        likeIndex.rebuild(likers);
+        index.rebuild(likers);
+    }
+
+    @Test
+    public void similar_whenLikersOverlap_thenFilmsRankedByJaccard() {
+        rebuild(Map.of(
+                1, RoaringBitmap.bitmapOf(1, 2, 3, 4),
+                2, RoaringBitmap.bitmapOf(1, 2, 3, 4),
+                3, RoaringBitmap.bitmapOf(5, 6)));
+
+        assertEquals(List.of(2), index.similar(1, 10));
+        assertEquals(List.of(), index.similar(3, 10));
+        assertEquals(List.of(), index.similar(4, 10));
+    }
+
+    @Test
+    public void recompute_whenLikeAddedConcurrently_thenLikeKept() throws InterruptedException {
+        Thread[] adder = new Thread[1];
+        likeIndex = new LikeIndex() {
+            @Override
+            public RoaringBitmap likers(int filmId) {
+                RoaringBitmap users = super.likers(filmId);
+                adder[0] = new Thread(() -> {
+                    addLike(2, 1);
+                    index.addLike(2, 1);
+                });
+                adder[0].start();
+                try {
+                    adder[0].join(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return users;
+            }
+        };
+        index = new FilmSimilarityIndex(likeIndex);
+        rebuild(Map.of(
+                1, RoaringBitmap.bitmapOf(1),
+                2, RoaringBitmap.bitmapOf(3)));
+
+        likeIndex.removeLike(2, 3);
+        index.recompute(2);
+        adder[0].join();
+
+        assertEquals(List.of(2), index.similar(1, 10));
+    }
+
+    @Test
+    public void similar_whenLikeAddedAndRemoved_thenSignatureUpdated() {
+        rebuild(Map.of(
+                1, RoaringBitmap.bitmapOf(1, 2),
+                2, RoaringBitmap.bitmapOf(3)));
+
+        likeIndex.addLike(2, 1);
+        index.addLike(2, 1);
+        likeIndex.addLike(2, 2);
+        index.addLike(2, 2);
+        likeIndex.removeLike(2, 3);
+        index.recompute(2);
+
+        assertEquals(List.of(2), index.similar(1, 10));
+    }
+
+    @Test
+    public void similar_whenCatalogIsClustered_thenRecallCloseToBruteForce() {
+        Random random = new Random(7);
+        Map<Integer, RoaringBitmap> likers = new HashMap<>();
+        int clusters = 40;
+        int filmsPerCluster = 10;
+        int usersPerCluster = 50;
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            for (int film = 0; film < filmsPerCluster; film++) {
+                RoaringBitmap users = new RoaringBitmap();
+                for (int user = 0; user < usersPerCluster; user++) {
+                    if (random.nextDouble() < 0.8) {
+                        users.add(1 + cluster * usersPerCluster + user);
+                    }
+                }
+                users.add(1 + random.nextInt(clusters * usersPerCluster));
+                likers.put(1 + cluster * filmsPerCluster + film, users);
+            }
+        }
+        rebuild(likers);
+
+        int found = 0;
+        int expected = 0;
+        for (int filmId = 1; filmId <= clusters * filmsPerCluster; filmId += 7) {
+            Set<Integer> exact = new HashSet<>(index.similarExact(filmId, 5));
+            Set<Integer> approximate = new HashSet<>(index.similar(filmId, 5));
+            expected += exact.size();
+            approximate.retainAll(exact);
+            found += approximate.size();
+        }
+
+        assertThat((double) found / expected).isGreaterThanOrEqualTo(0.9);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LikeIndexTest {
+    LikeIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new LikeIndex();
+        index.rebuild(Map.of(
+                1, RoaringBitmap.bitmapOf(1, 2, 3),
+                2, RoaringBitmap.bitmapOf(2, 3),
+                3, RoaringBitmap.bitmapOf(3, 4),
+                4, RoaringBitmap.bitmapOf(4)));
+    }
+
+    @Test
+    public void recommend_whenCalled_thenUnlikedFilmsRankedBySimilarity() {
+        assertEquals(List.of(2, 3), index.recommend(1, 10));
+        assertEquals(List.of(2), index.recommend(1, 1));
+    }
+
+    @Test
+    public void recommend_whenUserHasNoLikes_thenReturnedEmptyList() {
+        assertEquals(List.of(), index.recommend(5, 10));
+    }
+
+    @Test
+    public void recommend_whenLikesChanged_thenIndexUpdatedIncrementally() {
+        index.addLike(4, 1);
+        index.removeLike(2, 2);
+        index.removeLike(2, 3);
+
+        assertEquals(List.of(3), index.recommend(1, 10));
+        assertEquals(RoaringBitmap.bitmapOf(1, 4), index.likers(4));
+    }
+
+    @Test
+    public void recommend_whenUserRemoved_thenHisLikesIgnored() {
+        index.removeUser(3);
+
+        assertEquals(List.of(2), index.recommend(1, 10));
+        assertEquals(RoaringBitmap.bitmapOf(4), index.likers(3));
+    }
+}
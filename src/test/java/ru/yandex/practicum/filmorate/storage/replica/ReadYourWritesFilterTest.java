@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class ReadYourWritesFilterTest {
+    ReplicationFeed feed;
+    ReadYourWritesFilter filter;
+
+    @BeforeEach
+    public void beforeEach() {
+        feed = mock(ReplicationFeed.class);
+        when(feed.head()).thenReturn(5L);
+        filter = new ReadYourWritesFilter(feed, Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    public void doFilter_whenWriteFailed_thenPositionNotTaken() throws Exception {
+        perform("POST", 400);
+
+        assertEquals(0, perform("GET", 200));
+        verify(feed, never()).head();
+    }
+
+    @Test
+    public void doFilter_whenWriteSucceeded_thenReadsRequirePosition() throws Exception {
+        perform("PUT", 200);
+
+        assertEquals(5, perform("GET", 200));
+        verify(feed, times(1)).head();
+    }
+
+    private long perform(String method, int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/films");
+        request.addHeader(ReadYourWritesFilter.CLIENT_HEADER, "client");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicLong position = new AtomicLong();
+        FilterChain chain = (req, res) -> {
+            position.set(ReplicaRouting.requiredPosition());
+            ((MockHttpServletResponse) res).setStatus(status);
+        };
+
+        filter.doFilter(request, response, chain);
+
+        return position.get();
+    }
+}
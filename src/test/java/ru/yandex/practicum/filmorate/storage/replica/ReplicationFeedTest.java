@@ -0,0 +1,189 @@
+package ru.yandex.practicum.filmorate.storage.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicationFeedTest {
+    HikariDataSource primary;
+    Replica replica;
+    ReplicaSet replicas;
+    ReplicationFeed feed;
+    JdbcTemplate primaryJdbc;
+    JdbcTemplate replicaJdbc;
+
+    @BeforeEach
+    public void beforeEach() {
+        primary = dataSource("primary");
+        ResourceDatabasePopulator populator =
+                new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(primary);
+        replica = new Replica("replica-0", dataSource("replica"));
+        replicas = new ReplicaSet(List.of(replica), Duration.ofMinutes(1).toMillis());
+        feed = new ReplicationFeed(primary, replicas, 1000, Duration.ZERO, Duration.ofMinutes(1));
+        feed.start();
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica.getDataSource());
+    }
+
+    @AfterEach
+    public void afterEach() {
+        replicas.close();
+        primary.close();
+    }
+
+    @Test
+    public void start_whenPrimaryHasData_thenReplicaLoadedFromSnapshot() {
+        assertTrue(replica.isInSync());
+        assertEquals(6, count(replicaJdbc, "genre"));
+        assertEquals(5, count(replicaJdbc, "ratingMPA"));
+    }
+
+    @Test
+    public void sync_whenRowsChanged_thenChangesAppliedToReplica() {
+        primaryJdbc.update("INSERT INTO films (film_id, film_name, description, release_date, duration_in_minutes, " +
+                "rating_MPA_id) VALUES (1, 'name', 'description', '2000-01-01 00:00:00', 100, 1)");
+        primaryJdbc.update("INSERT INTO film_genre (film_id, genre_id) VALUES (1, 2)");
+        feed.sync();
+
+        assertEquals("name", replicaJdbc.queryForObject("SELECT film_name FROM films WHERE film_id = 1", String.class));
+        assertEquals(1, count(replicaJdbc, "film_genre"));
+
+        primaryJdbc.update("UPDATE films SET film_name = 'updated' WHERE film_id = 1");
+        feed.sync();
+
+        assertEquals("updated", replicaJdbc.queryForObject("SELECT film_name FROM films WHERE film_id = 1",
+                String.class));
+
+        primaryJdbc.update("DELETE FROM films WHERE film_id = 1");
+        feed.sync();
+
+        assertEquals(0, count(replicaJdbc, "films"));
+        assertEquals(0, count(replicaJdbc, "film_genre"));
+        assertEquals(feed.head(), replica.getPosition());
+    }
+
+    @Test
+    public void sync_whenTransactionRolledBack_thenGapSkipped() {
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(primary));
+        assertThrows(IllegalStateException.class, () -> transactions.executeWithoutResult(status -> {
+            primaryJdbc.update("INSERT INTO genre (name) VALUES ('Откатится')");
+            throw new IllegalStateException();
+        }));
+        primaryJdbc.update("INSERT INTO genre (name) VALUES ('Вестерн')");
+        feed.sync();
+
+        assertEquals(7, count(replicaJdbc, "genre"));
+        assertEquals(feed.head(), replica.getPosition());
+    }
+
+    @Test
+    public void sync_whenTransactionCommitsAfterGapTimeout_thenLateRowsApplied() throws SQLException {
+        try (Connection slow = primary.getConnection()) {
+            slow.setAutoCommit(false);
+            slow.createStatement().executeUpdate("INSERT INTO genre (name) VALUES ('Долгая')");
+            primaryJdbc.update("INSERT INTO genre (name) VALUES ('Вестерн')");
+            feed.sync();
+
+            assertEquals(7, count(replicaJdbc, "genre"));
+
+            slow.commit();
+        }
+        feed.sync();
+
+        assertEquals(8, count(replicaJdbc, "genre"));
+        assertEquals(1, replicaJdbc.queryForObject("SELECT COUNT(*) FROM genre WHERE name = 'Долгая'",
+                Integer.class));
+    }
+
+    @Test
+    public void sync_whenTransactionInFlightDuringBootstrap_thenCommittedRowsApplied() throws SQLException {
+        try (Connection slow = primary.getConnection()) {
+            slow.setAutoCommit(false);
+            slow.createStatement().executeUpdate("INSERT INTO genre (name) VALUES ('Долгая')");
+            primaryJdbc.update("INSERT INTO genre (name) VALUES ('Вестерн')");
+            replica.outOfSync();
+            feed.sync();
+
+            assertTrue(replica.isInSync());
+            assertEquals(7, count(replicaJdbc, "genre"));
+
+            slow.commit();
+        }
+        feed.sync();
+
+        assertEquals(8, count(replicaJdbc, "genre"));
+    }
+
+    @Test
+    public void route_whenReadOnlyQuery_thenReplicaUnlessClientWroteAhead() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(
+                new MpaDbStorage(new NamedParameterJdbcTemplate(new ReplicaRoutingDataSource(primary, replicas)),
+                        new FilmPopularityIndex()));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ReplicaRoutingAspect(replicas));
+        MpaDbStorage storage = factory.getProxy();
+        primaryJdbc.update("INSERT INTO ratingMPA (rating_name) VALUES ('X')");
+
+        assertEquals(5, storage.getAll().size());
+        assertEquals(6, ReplicaRouting.onPrimary(storage::getAll).size());
+
+        ReplicaRouting.requirePosition(feed.head());
+        try {
+            assertEquals(6, storage.getAll().size());
+            feed.sync();
+            assertEquals(6, storage.getAll().size());
+            assertNull(ReplicaRouting.currentReplica());
+        } finally {
+            ReplicaRouting.clear();
+        }
+    }
+
+    @Test
+    public void choose_whenReplicaLagsOrOutOfSync_thenPrimary() throws InterruptedException {
+        ReplicaSet strict = new ReplicaSet(List.of(replica), 0);
+        Thread.sleep(5);
+
+        assertNull(strict.choose(0));
+        assertSame(replica, replicas.choose(0));
+
+        replica.outOfSync();
+
+        assertNull(replicas.choose(0));
+    }
+
+    private static int count(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static HikariDataSource dataSource(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("password");
+        return dataSource;
+    }
+}
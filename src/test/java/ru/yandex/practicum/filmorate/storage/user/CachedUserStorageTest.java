@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCacheBuilder;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class CachedUserStorageTest {
+    UserStorage delegate;
+    CachedUserStorage storage;
+    User user;
+
+    @BeforeEach
+    public void beforeEach() {
+        delegate = mock(UserStorage.class);
+        EntityCacheBuilder cacheBuilder = new EntityCacheBuilder(new SimpleMeterRegistry(), 1,
+                Duration.ofMinutes(5), Duration.ofMinutes(5));
+        storage = new CachedUserStorage(delegate, cacheBuilder);
+        user = User.builder().id(1).login("login").build();
+        when(delegate.getUserById(1)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    public void getUserById_whenUserUpdated_thenReloaded() {
+        storage.getUserById(1);
+        storage.getUserById(1);
+        storage.updateUser(user);
+        storage.getUserById(1);
+
+        verify(delegate, times(2)).getUserById(1);
+    }
+
+    @Test
+    public void getUserById_whenAllUsersDeleted_thenReloaded() {
+        storage.getUserById(1);
+        storage.deleteAllUsers();
+        Optional<User> reloaded = storage.getUserById(1);
+
+        assertEquals(user, reloaded.get());
+        verify(delegate, times(2)).getUserById(1);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Friendship;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FriendGraphIndexTest {
+    FriendGraphIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new FriendGraphIndex();
+        index.rebuild(Map.of(1, new int[]{4, 2, 3}, 2, new int[]{3, 4}, 3, new int[]{1}));
+    }
+
+    @Test
+    public void rebuild_whenCalled_thenFriendsAndFollowersSorted() {
+        assertArrayEquals(new int[]{2, 3, 4}, index.friends(1));
+        assertArrayEquals(new int[]{1, 2}, index.followers(3));
+        assertArrayEquals(new int[]{1, 2}, index.followers(4));
+        assertArrayEquals(new int[0], index.friends(4));
+    }
+
+    @Test
+    public void mutualFriends_whenCalled_thenReturnedIntersection() {
+        assertArrayEquals(new int[]{3, 4}, index.mutualFriends(1, 2));
+        assertArrayEquals(new int[0], index.mutualFriends(1, 3));
+    }
+
+    @Test
+    public void addFriend_whenAlreadyFriends_thenNothingChanged() {
+        index.addFriend(1, 2);
+        index.addFriend(3, 2);
+
+        assertArrayEquals(new int[]{2, 3, 4}, index.friends(1));
+        assertArrayEquals(new int[]{1, 2}, index.friends(3));
+        assertArrayEquals(new int[]{1, 3}, index.followers(2));
+    }
+
+    @Test
+    public void addFriends_whenBatchHasDuplicates_thenMergedWithoutDuplicates() {
+        index.addFriends(List.of(new Friendship(4, 1), new Friendship(2, 3), new Friendship(2, 1)));
+
+        assertArrayEquals(new int[]{1, 3, 4}, index.friends(2));
+        assertArrayEquals(new int[]{2, 3, 4}, index.followers(1));
+    }
+
+    @Test
+    public void removeUser_whenCalled_thenRemovedFromFriendsAndFollowers() {
+        index.removeUser(3);
+
+        assertArrayEquals(new int[]{2, 4}, index.friends(1));
+        assertArrayEquals(new int[]{4}, index.friends(2));
+        assertArrayEquals(new int[0], index.followers(1));
+        assertArrayEquals(new int[0], index.friends(3));
+    }
+
+    @Test
+    public void friends_whenAfterAndLimitGiven_thenReturnedPageOfSortedIds() {
+        index.addFriend(1, 7);
+
+        assertArrayEquals(new int[]{3, 4}, index.friends(1, 2, 2));
+        assertArrayEquals(new int[]{4, 7}, index.friends(1, 3, 10));
+        assertArrayEquals(new int[]{7}, index.friends(1, 5, Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FriendSuggestionsTest {
+    FriendGraphIndex graph;
+    FriendSuggestions suggestions;
+
+    @BeforeEach
+    public void beforeEach() {
+        graph = new FriendGraphIndex();
+        graph.rebuild(Map.of(
+                1, new int[]{2, 3, 4},
+                5, new int[]{2, 3, 4},
+                6, new int[]{2},
+                7, new int[]{3, 4},
+                2, new int[]{1}));
+        suggestions = new FriendSuggestions(graph, 1000, Integer.MAX_VALUE, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    public void suggest_whenCalled_thenNonFriendsRankedByMutualFriends() {
+        assertArrayEquals(new int[]{5, 7, 6}, suggestions.suggest(1, 10));
+        assertArrayEquals(new int[]{5}, suggestions.suggest(1, 1));
+    }
+
+    @Test
+    public void suggest_whenFriendshipChanged_thenCachedSuggestionsInvalidated() {
+        suggestions.suggest(1, 10);
+        suggestions.suggest(5, 10);
+
+        graph.addFriend(6, 3);
+        suggestions.invalidateFriendship(6, 3);
+        graph.addFriend(1, 5);
+        suggestions.invalidateFriendship(1, 5);
+
+        assertArrayEquals(new int[]{6, 7}, suggestions.suggest(1, 10));
+        assertArrayEquals(new int[]{1, 6, 7}, suggestions.suggest(5, 10));
+    }
+
+    @Test
+    public void suggest_whenNeighbourhoodIsLarge_thenParallelResultMatchesSequential() {
+        Random random = new Random(42);
+        Map<Integer, int[]> friends = new HashMap<>();
+        for (int userId = 1; userId <= 2000; userId++) {
+            int[] ids = new int[1 + random.nextInt(200)];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = 1 + random.nextInt(2000);
+            }
+            friends.put(userId, Arrays.stream(ids).distinct().toArray());
+        }
+        graph.rebuild(friends);
+        FriendSuggestions parallel = new FriendSuggestions(graph, 1000, 0, 100, Duration.ofMinutes(10));
+
+        assertArrayEquals(suggestions.compute(1), parallel.compute(1));
+    }
+
+    @Test
+    public void suggest_whenFanOutIsCapped_thenFollowersSampled() {
+        FriendSuggestions capped = new FriendSuggestions(graph, 1, Integer.MAX_VALUE, 100, Duration.ofMinutes(10));
+
+        assertArrayEquals(new int[]{1}, capped.suggest(6, 10));
+    }
+}
@@ -7,23 +7,31 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @JdbcTest
-@Import(UserDbStorage.class)
+@Import({UserDbStorage.class, FriendGraphIndex.class, FriendSuggestions.class})
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 class UserDbStorageTest {
 
     private final UserDbStorage userDbStorage;
+    private final PlatformTransactionManager transactionManager;
 
     @Test
     public void createUser_whenUserIsCorrect_thanCreateAndReturnUser() {
@@ -282,4 +290,251 @@ class UserDbStorageTest {
 
         assertThat(userFriends).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getUsers_whenAfterAndLimitGiven_thanReturnNextPageOrderedById() {
+        User user = userDbStorage.createUser(User.builder()
+                .login("pageOleg1")
+                .email("pageOleg1@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("pageOleg2")
+                .email("pageOleg2@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User thirdUser = userDbStorage.createUser(User.builder()
+                .login("pageOleg3")
+                .email("pageOleg3@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+
+        List<User> firstPage = userDbStorage.getUsers(0, 2);
+        List<User> secondPage = userDbStorage.getUsers(firstPage.get(1).getId(), 2);
+
+        assertEquals(2, firstPage.size());
+        assertEquals(user.getId(), firstPage.get(0).getId());
+        assertEquals(secondUser.getId(), firstPage.get(1).getId());
+        assertEquals(1, secondPage.size());
+        assertEquals(thirdUser.getId(), secondPage.get(0).getId());
+    }
+
+    @Test
+    public void streamUsers_whenDatabaseHasUsers_thanPassEachUserInIdOrder() {
+        User user = userDbStorage.createUser(User.builder()
+                .login("streamOleg1")
+                .email("streamOleg1@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("streamOleg2")
+                .email("streamOleg2@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        List<User> streamed = new ArrayList<>();
+
+        userDbStorage.streamUsers(streamed::add);
+
+        assertEquals(2, streamed.size());
+        assertEquals(user.getId(), streamed.get(0).getId());
+        assertEquals(secondUser.getId(), streamed.get(1).getId());
+    }
+
+    @Test
+    public void createUsers_whenBatchIsCorrect_thanSaveUsersWithIds() {
+        List<User> users = List.of(User.builder()
+                        .login("bulkOleg1")
+                        .email("bulkOleg1@gg.ru")
+                        .birthday(LocalDate.of(2020, 12, 1))
+                        .name("Oleg")
+                        .build(),
+                User.builder()
+                        .login("bulkOleg2")
+                        .email("bulkOleg2@gg.ru")
+                        .birthday(LocalDate.of(2020, 12, 1))
+                        .name("Oleg")
+                        .build());
+
+        userDbStorage.createUsers(users);
+
+        assertThat(userDbStorage.getUserById(users.get(0).getId()))
+                .isPresent()
+                .hasValueSatisfying(user -> assertThat(user).hasFieldOrPropertyWithValue("login", "bulkOleg1"));
+        assertThat(userDbStorage.getUserById(users.get(1).getId()))
+                .isPresent()
+                .hasValueSatisfying(user -> assertThat(user).hasFieldOrPropertyWithValue("login", "bulkOleg2"));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void addFriends_whenBatchHasExistingFriendship_thanInsertOnlyNewOnes() {
+        User user = userDbStorage.createUser(User.builder()
+                .login("bulkOleg3")
+                .email("bulkOleg3@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("bulkOleg4")
+                .email("bulkOleg4@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        userDbStorage.addFriend(user, secondUser);
+
+        int inserted = userDbStorage.addFriends(List.of(
+                new Friendship(user.getId(), secondUser.getId()),
+                new Friendship(secondUser.getId(), user.getId())));
+
+        assertEquals(1, inserted);
+        assertThat(userDbStorage.getUserFriends(secondUser.getId())).containsExactly(user.getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void addFriends_whenOuterTransactionRolledBack_thanFriendGraphUnchanged() {
+        User user = userDbStorage.createUser(User.builder()
+                .login("bulkOleg5")
+                .email("bulkOleg5@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("bulkOleg6")
+                .email("bulkOleg6@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    userDbStorage.addFriends(List.of(new Friendship(user.getId(), secondUser.getId())));
+                    throw new IllegalStateException();
+                }));
+
+        assertThat(userDbStorage.getUserFriends(user.getId())).isEmpty();
+    }
+
+    @Test
+    public void getMutualFriends_whenFriendGraphRebuilt_thanReturnCommonFriendsOrderedById() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            users.add(userDbStorage.createUser(User.builder()
+                    .login("mutualOleg" + i)
+                    .email("mutualOleg" + i + "@gg.ru")
+                    .birthday(LocalDate.of(2020, 12, 1))
+                    .name("Oleg")
+                    .build()));
+        }
+        User user = users.get(0);
+        User other = users.get(1);
+        userDbStorage.addFriend(user, users.get(3));
+        userDbStorage.addFriend(user, users.get(2));
+        userDbStorage.addFriend(other, users.get(2));
+        userDbStorage.addFriend(other, users.get(3));
+        userDbStorage.addFriend(other, user);
+
+        userDbStorage.rebuildFriendGraph();
+        List<User> mutual = userDbStorage.getMutualFriends(user, other);
+
+        assertThat(mutual).extracting(User::getId).containsExactly(users.get(2).getId(), users.get(3).getId());
+    }
+
+    @Test
+    public void deleteUser_whenUserHasFriendsAndFollowers_thanRemoveFromAllFriendLists() {
+        User user = userDbStorage.createUser(User.builder()
+                .login("deletedOleg1")
+                .email("deletedOleg1@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("deletedOleg2")
+                .email("deletedOleg2@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        userDbStorage.addFriend(user, secondUser);
+        userDbStorage.addFriend(secondUser, user);
+
+        userDbStorage.deleteUser(user.getId());
+
+        assertThat(userDbStorage.getUserFriends(secondUser.getId())).isEmpty();
+        assertThat(userDbStorage.getUserFriends(user.getId())).isEmpty();
+    }
+
+    @Test
+    public void getUsersByIds_whenSomeIdsAreMissing_thanReturnFoundUsersInRequestedOrder() {
+        User user = userDbStorage.createUser(User.builder()
+                .login("batchOleg1")
+                .email("batchOleg1@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+        User secondUser = userDbStorage.createUser(User.builder()
+                .login("batchOleg2")
+                .email("batchOleg2@gg.ru")
+                .birthday(LocalDate.of(2020, 12, 1))
+                .name("Oleg")
+                .build());
+
+        List<User> users = userDbStorage.getUsersByIds(List.of(secondUser.getId(), 999, user.getId()));
+
+        assertThat(users).extracting(User::getId).containsExactly(secondUser.getId(), user.getId());
+    }
+
+    @Test
+    public void getFriends_whenAfterAndLimitGiven_thanReturnNextPageOfFriendsOrderedById() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            users.add(userDbStorage.createUser(User.builder()
+                    .login("pagedFriend" + i)
+                    .email("pagedFriend" + i + "@gg.ru")
+                    .birthday(LocalDate.of(2020, 12, 1))
+                    .name("Oleg")
+                    .build()));
+        }
+        User user = users.get(0);
+        userDbStorage.addFriend(user, users.get(3));
+        userDbStorage.addFriend(user, users.get(1));
+        userDbStorage.addFriend(user, users.get(2));
+
+        List<User> firstPage = userDbStorage.getFriends(user.getId(), 0, 2);
+        List<User> secondPage = userDbStorage.getFriends(user.getId(), firstPage.get(1).getId(), 2);
+
+        assertThat(firstPage).extracting(User::getId).containsExactly(users.get(1).getId(), users.get(2).getId());
+        assertThat(secondPage).extracting(User::getId).containsExactly(users.get(3).getId());
+        assertThat(secondPage.get(0)).hasFieldOrPropertyWithValue("login", "pagedFriend3");
+        assertThat(userDbStorage.getUserFriends(user.getId(), users.get(1).getId(), 1))
+                .containsExactly(users.get(2).getId());
+    }
+
+    @Test
+    public void getFriendSuggestions_whenFriendshipChanged_thanSuggestionsRecalculated() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            users.add(userDbStorage.createUser(User.builder()
+                    .login("suggestedOleg" + i)
+                    .email("suggestedOleg" + i + "@gg.ru")
+                    .birthday(LocalDate.of(2020, 12, 1))
+                    .name("Oleg")
+                    .build()));
+        }
+        User user = users.get(0);
+        User candidate = users.get(1);
+        userDbStorage.addFriend(user, users.get(2));
+        userDbStorage.addFriend(user, users.get(3));
+        userDbStorage.addFriend(candidate, users.get(2));
+
+        assertThat(userDbStorage.getFriendSuggestions(user.getId(), 10)).containsExactly(candidate.getId());
+
+        userDbStorage.addFriend(user, candidate);
+
+        assertThat(userDbStorage.getFriendSuggestions(user.getId(), 10)).isEmpty();
+    }
+}